@@ -0,0 +1,186 @@
+package slide.bench;
+
+import java.io.StringReader;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import slide.Board;
+import slide.ReplayResult;
+
+/**
+ * JMH benchmarks for the hot paths of Board, on square boards from 3x3 up to
+ * 1000x1000. Moves are always undone in the same invocation so the turn
+ * history doesn't grow while measuring, which means queryTile and multiMove
+ * include the cost of one undo. Run with ant bench, e.g.
+ * ant bench -Djmh.classpath=... -Dbench.args="BoardBenchmark -p size=3,100"
+ *
+ * @author Griffin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark
+{
+
+    /**
+     * The width and height of the board.
+     */
+    @Param(
+    {
+        "3", "10", "100", "300", "1000"
+    })
+    public int size;
+
+    /**
+     * How many moves replay plays.
+     */
+    private static final int REPLAY_MOVES = 1000;
+
+    /**
+     * A shuffled board, with no turns.
+     */
+    private Board board;
+
+    /**
+     * The board as XML, for fromXML.
+     */
+    private String xml;
+
+    /**
+     * The tile next to the blank and the tile at the other end of the
+     * blank's row.
+     */
+    private int nearX, farX, blankY;
+
+    /**
+     * A random walk of the blank followed by the same walk backwards, so
+     * replaying it leaves the board as it was.
+     */
+    private int[] walk;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.board = new Board(this.size, this.size);
+        this.board.shuffle();
+        this.xml = this.board.toXML();
+        this.blankY = this.board.getBlankY();
+        int blankX = this.board.getBlankX();
+        this.nearX = blankX > 0 ? blankX - 1 : blankX + 1;
+        this.farX = blankX >= this.size / 2 ? 0 : this.size - 1;
+        this.walk = new int[REPLAY_MOVES];
+        SplittableRandom random = new SplittableRandom(1);
+        int x = blankX;
+        int y = this.blankY;
+        for (int i = 0; i < REPLAY_MOVES / 2; ++i)
+        {
+            int direction;
+            do
+            {
+                direction = random.nextInt(4);
+            } while (direction == Board.UP && y == 0 || direction == Board.RIGHT && x == this.size - 1
+                    || direction == Board.DOWN && y == this.size - 1 || direction == Board.LEFT && x == 0);
+            x += direction == Board.RIGHT ? 1 : direction == Board.LEFT ? -1 : 0;
+            y += direction == Board.DOWN ? 1 : direction == Board.UP ? -1 : 0;
+            this.walk[i] = direction;
+            this.walk[REPLAY_MOVES - 1 - i] = (direction + 2) % 4;
+        }
+    }
+
+    /**
+     * Slides the tile next to the blank, then undoes it.
+     */
+    @Benchmark
+    public boolean queryTile()
+    {
+        boolean rtnbool = this.board.queryTile(this.nearX, this.blankY);
+        this.board.undo();
+        return rtnbool;
+    }
+
+    /**
+     * Slides every tile between the blank and the far end of its row, then
+     * undoes it.
+     */
+    @Benchmark
+    public boolean multiMove()
+    {
+        boolean rtnbool = this.board.queryTile(this.farX, this.blankY);
+        this.board.undo();
+        return rtnbool;
+    }
+
+    /**
+     * Plays 1000 moves in one call. On small boards divide by 1000 for the
+     * time a move, on big ones the recount at the end takes longer than the
+     * moves.
+     */
+    @Benchmark
+    public ReplayResult replay()
+    {
+        return this.board.replay(this.walk);
+    }
+
+    @Benchmark
+    public boolean checkSolved()
+    {
+        return this.board.checkSolved();
+    }
+
+    @Benchmark
+    public boolean checkSolvable()
+    {
+        return this.board.checkSolvable();
+    }
+
+    /**
+     * Shuffles a new board. The first shuffle of a board is what the game
+     * does when a puzzle is started.
+     */
+    @Benchmark
+    public Board shuffle()
+    {
+        Board rtnval = new Board(this.size, this.size);
+        rtnval.shuffle();
+        return rtnval;
+    }
+
+    @Benchmark
+    public String toXML()
+    {
+        return this.board.toXML();
+    }
+
+    @Benchmark
+    public Board fromXML()
+    {
+        Board rtnval = new Board(3, 3);
+        rtnval.fromXML(new Scanner(this.xml).useDelimiter("<|>"));
+        return rtnval;
+    }
+
+    @Benchmark
+    public Board fromXMLStream() throws XMLStreamException
+    {
+        Board rtnval = new Board(3, 3);
+        rtnval.fromXML(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(this.xml)));
+        return rtnval;
+    }
+}
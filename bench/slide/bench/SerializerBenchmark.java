@@ -0,0 +1,99 @@
+package slide.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import serializer.Deserializer;
+import serializer.Serializer;
+import slide.Board;
+
+/**
+ * JMH benchmarks for saving a board to a file and loading it back, in both
+ * the .sld and the XML format. The board has a history of single and multi
+ * tile turns, since those are saved too.
+ *
+ * @author Griffin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark
+{
+
+    /**
+     * The width and height of the board.
+     */
+    @Param(
+    {
+        "3", "10", "100", "300", "1000"
+    })
+    public int size;
+
+    /**
+     * How many turns the board has.
+     */
+    @Param(
+    {
+        "100"
+    })
+    public int turns;
+
+    private Board board;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        this.board = new Board(this.size, this.size);
+        this.board.shuffle();
+        for (int i = 0; i < this.turns; ++i)
+        {
+            //Alternate between a whole row and a whole column
+            if (i % 2 == 0)
+            {
+                this.board.queryTile(this.board.getBlankX() == 0 ? this.size - 1 : 0, this.board.getBlankY());
+            } else
+            {
+                this.board.queryTile(this.board.getBlankX(), this.board.getBlankY() == 0 ? this.size - 1 : 0);
+            }
+        }
+        this.file = File.createTempFile("slide-bench", ".sld");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.file.delete();
+    }
+
+    @Benchmark
+    public Board sldRoundTrip()
+    {
+        Serializer.serializeBoard(this.file, this.board);
+        return Deserializer.deserializeBoard(this.file);
+    }
+
+    @Benchmark
+    public Board xmlRoundTrip()
+    {
+        Serializer.XMLSerializeBoard(this.file, this.board);
+        return Deserializer.XMLDeserializeBoard(this.file);
+    }
+}
@@ -0,0 +1,84 @@
+package slide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import slide.Board;
+
+/**
+ * Times the sequential solver against the parallel one on the same boards
+ * for a range of pool sizes, and prints the speedup of each.
+ *
+ * Run with ant bench-parallel, optionally passing
+ * -Dbench.args="width height boards seed threads... [pdb directory]"
+ * e.g. -Dbench.args="4 4 5 1 8 16 32" or "5 5 3 1 8 16 32 pdb/". Pattern
+ * databases are needed for hard 5x5 boards.
+ *
+ * @author Griffin
+ */
+public class ParallelSolverBenchmark
+{
+
+    /**
+     * Makes a board by clicking random tiles, so every board comes from the
+     * seed alone.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param rand Where the clicks come from
+     * @return The board
+     */
+    private static Board randomBoard(int width, int height, Random rand)
+    {
+        Board rtnval = new Board(width, height);
+        for (int i = 0; i < 10000; ++i)
+        {
+            rtnval.queryTile(rand.nextInt(width), rand.nextInt(height));
+        }
+        return rtnval;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            args = new String[]
+            {
+                "4", "4", "5", "1", "8", "16", "32"
+            };
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int count = Integer.parseInt(args[2]);
+        Random rand = new Random(Long.parseLong(args[3]));
+        int pools = args.length - 4;
+        HeuristicFactory heuristics = LinearConflictHeuristic::new;
+        if (!args[args.length - 1].matches("\\d+"))
+        {
+            heuristics = BatchSolver.patternDatabases(new File(args[args.length - 1]));
+            --pools;
+        }
+        System.out.println(Runtime.getRuntime().availableProcessors() + " cores available");
+        IDAStarSolver sequential = new IDAStarSolver(heuristics);
+        for (int b = 0; b < count; ++b)
+        {
+            Board board = randomBoard(width, height, rand);
+            long start = System.nanoTime();
+            int length = sequential.solve(board).size();
+            long base = System.nanoTime() - start;
+            System.out.println("Board " + b + ": " + length + " moves, sequential " + base / 1000000 + "ms");
+            for (int p = 0; p < pools; ++p)
+            {
+                int threads = Integer.parseInt(args[4 + p]);
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                start = System.nanoTime();
+                int parallelLength = new ParallelIDAStarSolver(heuristics, pool).solve(board).size();
+                long time = System.nanoTime() - start;
+                pool.shutdown();
+                System.out.printf("    %2d threads: %6dms, speedup %.2f%s%n", threads, time / 1000000,
+                        (double) base / time, parallelLength == length ? "" : " LENGTH MISMATCH " + parallelLength);
+            }
+        }
+    }
+}
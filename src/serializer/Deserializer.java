@@ -1,13 +1,18 @@
 package serializer;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.util.Scanner;
+import java.io.ObjectStreamConstants;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import slide.Board;
 
 /**
@@ -19,20 +24,32 @@ public class Deserializer
 {
 
     /**
-     * Uses ObjectInputStream to byte deserialize a board from a file saved with
-     * Serializer
+     * Deserializes a board from a file saved with Serializer. Files in the
+     * binary format are read with Board.fromBinary(), and files saved by
+     * older builds, which start with the Java serialization magic number, are
+     * read with ObjectInputStream.
      *
      * @param file The file to read from
-     * @return The board object that was deserialized.
+     * @return The board object that was deserialized, or null if the file
+     * couldn't be read
      */
     public static slide.Board deserializeBoard(File file)
     {
         slide.Board rtnBoard;
-        try
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
         {
-            ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-            rtnBoard = (Board) in.readObject();
-        } catch (IOException | ClassNotFoundException e)
+            in.mark(2);
+            boolean javaSerialized = in.readUnsignedShort() == (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF);
+            in.reset();
+            if (javaSerialized)
+            {
+                rtnBoard = (Board) new ObjectInputStream(in).readObject();
+            } else
+            {
+                rtnBoard = new Board(3, 3);
+                rtnBoard.fromBinary(in);
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e)
         {
             rtnBoard = null;
         }
@@ -40,7 +57,10 @@ public class Deserializer
     }
     
     /**
-     * Creates a board object based on an XML file.
+     * Creates a board object based on an XML file. The file is read with a
+     * pull parser, so it is never held in memory all at once. DTDs and
+     * external entities are turned off, since save files can come from
+     * anywhere.
      * 
      * @param file The XML file read from.
      * @return The created board.
@@ -48,11 +68,20 @@ public class Deserializer
     public static slide.Board XMLDeserializeBoard(File file)
     {
         slide.Board rtnBoard = new Board(3, 3);
-        try
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file)))
         {
-            Scanner input = new Scanner(file).useDelimiter("<|>");
-            rtnBoard.fromXML(input);
-        } catch (FileNotFoundException ex)
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try
+            {
+                rtnBoard.fromXML(reader);
+            } finally
+            {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException ex)
         {
             Logger.getLogger(Deserializer.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -0,0 +1,399 @@
+package serializer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import slide.Board;
+
+/**
+ * Reads an archive of many boards of one size written by
+ * PuzzleArchiveWriter. The file is mapped, so any board can be read without
+ * reading the ones before it and the operating system only pages in what is
+ * used.
+ *
+ * The file starts with a header of the magic number "SLDA", the version, the
+ * width and the height as ints. Then come the records, each the tiles as
+ * written by Board.writeTiles(), which are the same size for every board,
+ * followed by the turns as written by Board.writeTurns(). After the records
+ * is an index of the offset of every record as a long, then a footer of the
+ * offset of the index as a long, the number of boards and the magic number
+ * again. Mapped buffers are indexed by int, so an archive can be at most
+ * 2 GB.
+ *
+ * Adding to an archive leaves its index and footer where they are and
+ * writes the new records, a new index of every record and a new footer
+ * after them. Only the last footer counts. If a writer was never closed the
+ * file ends in records with no footer, and open() scans back to the last
+ * footer before them, so the archive reads as it was before that writer.
+ *
+ * @author Griffin
+ */
+public class PuzzleArchive
+{
+
+    /**
+     * The first and last four bytes of an archive, "SLDA".
+     */
+    static final int MAGIC = 0x534C4441;
+
+    /**
+     * The version of the archive format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER = 16;
+
+    /**
+     * The size of the footer in bytes.
+     */
+    static final int FOOTER = 16;
+
+    /**
+     * How many bytes are read at a time when scanning back for a footer.
+     */
+    private static final int SCAN_CHUNK = 1 << 16;
+
+    /**
+     * The width and height of every board in the archive.
+     */
+    private final int width, height;
+
+    /**
+     * The number of bits each tile is packed into.
+     */
+    private final int bits;
+
+    /**
+     * The whole file.
+     */
+    private final MappedByteBuffer data;
+
+    /**
+     * Where the index starts in data.
+     */
+    private final int index;
+
+    /**
+     * How many boards are in the archive.
+     */
+    private final int count;
+
+    /**
+     * Makes an archive from a mapped file that has been checked by open().
+     *
+     * @param width The width of the boards
+     * @param height The height of the boards
+     * @param data The whole file
+     * @param index Where the index starts
+     * @param count How many boards there are
+     */
+    private PuzzleArchive(int width, int height, MappedByteBuffer data, int index, int count)
+    {
+        this.width = width;
+        this.height = height;
+        this.bits = 32 - Integer.numberOfLeadingZeros(width * height - 1);
+        this.data = data;
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Maps an archive up to its last footer. Only the header and footer are
+     * read, unless the last writer wasn't closed and the footer before it has
+     * to be found.
+     *
+     * @param file The archive
+     * @return The archive
+     * @throws IOException If the file can't be read or isn't a finished
+     * archive
+     */
+    public static PuzzleArchive open(File file) throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = readHeader(channel, file);
+            long footer = findFooter(channel);
+            if (footer < 0)
+            {
+                throw new IOException(file + " isn't a finished puzzle archive");
+            }
+            if (footer + FOOTER > Integer.MAX_VALUE)
+            {
+                throw new IOException(file + " is over 2 GB");
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            if (width < 1 || height < 1)
+            {
+                throw new IOException(file + " has a broken header");
+            }
+            //The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, footer + FOOTER);
+            long index = data.getLong((int) footer);
+            int count = data.getInt((int) footer + 8);
+            return new PuzzleArchive(width, height, data, (int) index, count);
+        }
+    }
+
+    /**
+     * Reads and checks the header of an archive.
+     *
+     * @param channel The archive
+     * @param file The archive, for messages
+     * @return The header
+     * @throws IOException If the file can't be read or isn't an archive
+     */
+    static ByteBuffer readHeader(FileChannel channel, File file) throws IOException
+    {
+        if (channel.size() < HEADER + FOOTER)
+        {
+            throw new IOException(file + " isn't a finished puzzle archive");
+        }
+        ByteBuffer rtnval = read(channel, 0, HEADER);
+        if (rtnval.getInt(0) != MAGIC || rtnval.getInt(4) != VERSION)
+        {
+            throw new IOException(file + " isn't a puzzle archive");
+        }
+        return rtnval;
+    }
+
+    /**
+     * Finds the last footer of an archive. If the file doesn't end in one,
+     * it is scanned back from the end for the footer a writer that wasn't
+     * closed left behind, checking every offset in a candidate's index so
+     * that record bytes aren't taken for one.
+     *
+     * @param channel The archive
+     * @return The offset of the footer, or -1 if there is none
+     * @throws IOException If the file can't be read
+     */
+    static long findFooter(FileChannel channel) throws IOException
+    {
+        long size = channel.size();
+        long rtnval = -1;
+        if (isFooter(channel, size - FOOTER, false))
+        {
+            rtnval = size - FOOTER;
+        } else
+        {
+            //Candidates start at most at end - FOOTER, and windows overlap
+            long end = size - 1;
+            while (rtnval < 0 && end - FOOTER >= HEADER)
+            {
+                long start = Math.max(HEADER, end - FOOTER - SCAN_CHUNK);
+                ByteBuffer chunk = read(channel, start, (int) (end - start));
+                for (long p = end - FOOTER; rtnval < 0 && p >= start; --p)
+                {
+                    if (chunk.getInt((int) (p - start) + 12) == MAGIC && isFooter(channel, p, true))
+                    {
+                        rtnval = p;
+                    }
+                }
+                end = start + FOOTER - 1;
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Checks whether a footer starts at an offset: it ends in the magic
+     * number and points at an index that ends where it starts.
+     *
+     * @param channel The archive
+     * @param position The offset
+     * @param thorough Whether to also check that the index holds rising
+     * offsets of records before it, starting after the header
+     * @return True if it is a footer
+     * @throws IOException If the file can't be read
+     */
+    private static boolean isFooter(FileChannel channel, long position, boolean thorough) throws IOException
+    {
+        ByteBuffer footer = read(channel, position, FOOTER);
+        long index = footer.getLong(0);
+        int count = footer.getInt(8);
+        boolean rtnbool = footer.getInt(12) == MAGIC && count >= 0 && index >= HEADER
+                && index + 8L * count == position;
+        if (rtnbool && thorough)
+        {
+            ByteBuffer offsets = read(channel, index, 8 * count);
+            long previous = 0;
+            for (int i = 0; rtnbool && i < count; ++i)
+            {
+                long offset = offsets.getLong(8 * i);
+                rtnbool = (i == 0 ? offset == HEADER : offset > previous) && offset < index;
+                previous = offset;
+            }
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Reads part of a file without mapping it.
+     *
+     * @param channel The file
+     * @param position Where to start
+     * @param length How many bytes to read
+     * @return The bytes
+     * @throws IOException If the file can't be read or is too short
+     */
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer rtnval = ByteBuffer.allocate(length);
+        while (rtnval.hasRemaining())
+        {
+            if (channel.read(rtnval, position + rtnval.position()) < 0)
+            {
+                throw new EOFException();
+            }
+        }
+        rtnval.flip();
+        return rtnval;
+    }
+
+    /**
+     * Reads one board and its turns.
+     *
+     * @param i The index of the board
+     * @return A new Board
+     * @throws IOException If the record is broken
+     */
+    public Board get(int i) throws IOException
+    {
+        int start = offset(i);
+        int end = i + 1 < this.count ? offset(i + 1) : this.index;
+        ByteBuffer record = this.data.duplicate();
+        record.position(start);
+        record.limit(end);
+        DataInputStream in = new DataInputStream(new BufferInput(record));
+        Board rtnval = new Board(this.width, this.height);
+        rtnval.readTiles(in, this.width, this.height);
+        rtnval.readTurns(in);
+        return rtnval;
+    }
+
+    /**
+     * Reads one tile of one board straight from the mapping, without making
+     * a Board.
+     *
+     * @param i The index of the board
+     * @param x The x coordinate of the tile
+     * @param y The y coordinate of the tile
+     * @return The tile, or Board.BLANK
+     */
+    public int getTile(int i, int x, int y)
+    {
+        long bit = (long) (y * this.width + x) * this.bits;
+        int first = offset(i) + (int) (bit >>> 3);
+        int last = offset(i) + (int) ((bit + this.bits - 1) >>> 3);
+        long buffer = 0;
+        for (int b = first; b <= last; ++b)
+        {
+            buffer = buffer << 8 | (this.data.get(b) & 0xFF);
+        }
+        int spare = (int) (8 - ((bit + this.bits) & 7)) & 7;
+        return (int) (buffer >>> spare) & ((1 << this.bits) - 1);
+    }
+
+    /**
+     * Reads every board in order. Each board is read as the stream gets to
+     * it.
+     *
+     * @return The boards
+     * @throws UncheckedIOException If a record is broken
+     */
+    public Stream<Board> stream()
+    {
+        return IntStream.range(0, this.count).mapToObj(i ->
+        {
+            try
+            {
+                return get(i);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Gets where a record starts.
+     *
+     * @param i The index of the board
+     * @return The offset of its record in data
+     */
+    private int offset(int i)
+    {
+        if (i < 0 || i >= this.count)
+        {
+            throw new IndexOutOfBoundsException("Board " + i + " of " + this.count);
+        }
+        return (int) this.data.getLong(this.index + 8 * i);
+    }
+
+    /**
+     * @return How many boards are in the archive
+     */
+    public int size()
+    {
+        return this.count;
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * An InputStream over part of a buffer, so a record can be read with
+     * DataInputStream without copying it.
+     */
+    private static class BufferInput extends InputStream
+    {
+
+        /**
+         * The record, positioned at the next byte.
+         */
+        private final ByteBuffer buffer;
+
+        BufferInput(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            int rtnval = -1;
+            if (this.buffer.hasRemaining())
+            {
+                rtnval = Math.min(len, this.buffer.remaining());
+                this.buffer.get(b, off, rtnval);
+            }
+            return rtnval;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import slide.Board;
+
+/**
+ * Writes boards of one size to an archive read by PuzzleArchive. The file is
+ * only ever appended to. The index is kept in memory and written by close()
+ * after the new boards, along with a new footer. Opening an existing archive
+ * leaves its index and footer where they are, so readers that have it open
+ * aren't disturbed, and if the writer is never closed PuzzleArchive.open()
+ * still finds the old footer and reads the archive as it was.
+ *
+ * @author Griffin
+ */
+public class PuzzleArchiveWriter implements Closeable
+{
+
+    /**
+     * The width and height of every board in the archive.
+     */
+    private final int width, height;
+
+    /**
+     * The end of the file.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The offset of every record written so far, followed by unused space.
+     */
+    private long[] offsets;
+
+    /**
+     * Holds each record while it is written, so its length is known.
+     */
+    private final ByteArrayOutputStream record;
+
+    /**
+     * Writes to record.
+     */
+    private final DataOutputStream recordOut;
+
+    /**
+     * How many boards are in the archive.
+     */
+    private int count;
+
+    /**
+     * Where the next record will start.
+     */
+    private long position;
+
+    /**
+     * Opens an archive for appending, creating it if it doesn't exist.
+     *
+     * @param file The archive
+     * @param width The width of the boards
+     * @param height The height of the boards
+     * @throws IOException If the file can't be written or is an archive of
+     * another size
+     */
+    public PuzzleArchiveWriter(File file, int width, int height) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        this.offsets = new long[1024];
+        this.record = new ByteArrayOutputStream();
+        this.recordOut = new DataOutputStream(this.record);
+        if (file.length() > 0)
+        {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+            {
+                FileChannel channel = raf.getChannel();
+                ByteBuffer header = PuzzleArchive.readHeader(channel, file);
+                if (header.getInt(8) != width || header.getInt(12) != height)
+                {
+                    throw new IOException(file + " holds " + header.getInt(8) + "x" + header.getInt(12)
+                            + " boards");
+                }
+                long footer = PuzzleArchive.findFooter(channel);
+                if (footer < 0)
+                {
+                    throw new IOException(file + " isn't a finished puzzle archive");
+                }
+                ByteBuffer last = PuzzleArchive.read(channel, footer, PuzzleArchive.FOOTER);
+                this.count = last.getInt(8);
+                this.offsets = new long[Math.max(this.offsets.length, this.count)];
+                PuzzleArchive.read(channel, last.getLong(0), 8 * this.count).asLongBuffer()
+                        .get(this.offsets, 0, this.count);
+                //Anything after the footer is from a writer that wasn't closed
+                this.position = channel.size();
+            }
+            this.out = open(new FileOutputStream(file, true));
+        } else
+        {
+            this.out = open(new FileOutputStream(file));
+            this.out.writeInt(PuzzleArchive.MAGIC);
+            this.out.writeInt(PuzzleArchive.VERSION);
+            this.out.writeInt(width);
+            this.out.writeInt(height);
+            this.position = PuzzleArchive.HEADER;
+        }
+    }
+
+    /**
+     * Wraps the file in a buffered DataOutputStream.
+     *
+     * @param file The file
+     * @return The stream
+     */
+    private static DataOutputStream open(OutputStream file)
+    {
+        return new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+    }
+
+    /**
+     * Appends a board and its turns.
+     *
+     * @param board The board, which must be the size of the archive
+     * @throws IOException If the file can't be written
+     */
+    public void add(Board board) throws IOException
+    {
+        if (board.getWidth() != this.width || board.getHeight() != this.height)
+        {
+            throw new IllegalArgumentException("The board is " + board.getWidth() + "x" + board.getHeight()
+                    + ", not " + this.width + "x" + this.height);
+        }
+        if (this.count == this.offsets.length)
+        {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        this.offsets[this.count++] = this.position;
+        this.record.reset();
+        board.writeTiles(this.recordOut);
+        board.writeTurns(this.recordOut);
+        this.record.writeTo(this.out);
+        this.position += this.record.size();
+    }
+
+    /**
+     * @return How many boards are in the archive, counting ones from before
+     * it was opened
+     */
+    public int size()
+    {
+        return this.count;
+    }
+
+    /**
+     * Writes the index and footer and closes the file.
+     *
+     * @throws IOException If the file can't be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            for (int i = 0; i < this.count; ++i)
+            {
+                this.out.writeLong(this.offsets[i]);
+            }
+            this.out.writeLong(this.position);
+            this.out.writeInt(this.count);
+            this.out.writeInt(PuzzleArchive.MAGIC);
+        } finally
+        {
+            this.out.close();
+        }
+    }
+}
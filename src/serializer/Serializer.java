@@ -1,10 +1,14 @@
 package serializer;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Utility class for the serialization of Boards.
@@ -14,13 +18,19 @@ import java.io.PrintWriter;
 public class Serializer
 {
 
+    /**
+     * Saves a board in the binary .sld format written by Board.toBinary().
+     * Deserializer still reads the Java serialized .sld files older builds
+     * saved.
+     *
+     * @param file The file to write to
+     * @param board The board to save
+     */
     public static void serializeBoard(File file, slide.Board board)
     {
-        try
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
         {
-            FileOutputStream fout = new FileOutputStream(file);
-            ObjectOutputStream out = new ObjectOutputStream(fout);
-            out.writeObject(board);
+            board.toBinary(out);
             out.flush();
         } catch (IOException e)
         {
@@ -28,13 +38,20 @@ public class Serializer
         }
     }
 
+    /**
+     * Saves a board as XML. The board is written straight to the file by
+     * Board.toXML(Writer) instead of being built as one String first.
+     *
+     * @param file The file to write to
+     * @param board The board to save
+     */
     public static void XMLSerializeBoard(File file, slide.Board board)
     {
-        try
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8)))
         {
-            PrintWriter out = new PrintWriter(file);
             out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n");
-            out.append(board.toXML());
+            board.toXML(out);
             out.flush();
         } catch (IOException e)
         {
@@ -1,9 +1,26 @@
 package slide;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * This class is a representation of the board and a list of the most recent
@@ -15,167 +32,548 @@ public class Board implements Serializable
 {
 
     /**
-     * Tiles is the representation of the board. It is Integer instead of int to
-     * allow null to be used for the empty tile. Can be final because of
-     * non-transitivity.
+     * Pinned to the value the JVM computed for the original Integer[][]
+     * version of this class, so .sld files saved by older builds still load.
      */
-    private Integer[][] tiles;
+    private static final long serialVersionUID = -5376253380473674642L;
 
     /**
-     * This stack holds move objects after they are executed. This allows them
-     * to be undone in the reverse order they were originally executed in. It
-     * stores a stack of stacks so that one action from the user can encompass
-     * several Moves.
+     * The fields written to .sld files. The stream layout is still the
+     * original Integer[][] tiles and the stack of turns, the primitive store
+     * is converted to and from it in writeObject() and readObject().
      */
-    private ArrayDeque<ArrayDeque<Move>> turns;
+    private static final ObjectStreamField[] serialPersistentFields =
+    {
+        new ObjectStreamField("tiles", Integer[][].class),
+        new ObjectStreamField("turns", ArrayDeque.class)
+    };
+
+    /**
+     * The value stored in cells for the empty tile. Every real tile is
+     * numbered from 1, so 0 is never a tile.
+     */
+    public static final int BLANK = 0;
+
+    /**
+     * The directions the blank can move in, for replay(). The letters
+     * replay() takes for them are U, R, D and L.
+     */
+    public static final int UP = History.UP, RIGHT = History.RIGHT, DOWN = History.DOWN, LEFT = History.LEFT;
+
+    /**
+     * How far the blank's column and row change when it moves in each
+     * direction.
+     */
+    private static final int[] COLUMN_STEPS =
+    {
+        0, 1, 0, -1
+    }, ROW_STEPS =
+    {
+        -1, 0, 1, 0
+    };
+
+    /**
+     * The direction of every move letter, looked up instead of switched on
+     * because a switch mispredicts on every move of a random sequence.
+     */
+    private static final byte[] LETTERS = letters();
+
+    /**
+     * The first four bytes of a binary board, "SLDB". A Java serialized board
+     * starts with 0xACED instead, which is how the two are told apart.
+     */
+    public static final int BINARY_MAGIC = 0x534C4442;
+
+    /**
+     * The version of the binary format written by toBinary().
+     */
+    private static final int BINARY_VERSION = 1;
+
+    /**
+     * The width and height of the board.
+     */
+    private int width, height;
+
+    /**
+     * Cells is the representation of the board. It is a flat array of the
+     * tiles read left to right and top to bottom, so the tile at (x, y) is at
+     * index y * width + x. The empty tile is stored as BLANK.
+     */
+    private int[] cells;
+
+    /**
+     * The index in cells of the empty tile. It is kept up to date by every
+     * method that changes cells so that the blank never has to be searched
+     * for.
+     */
+    private int blank;
+
+    /**
+     * How many cells hold the tile that belongs there in the solved state,
+     * counting the blank in the bottom right corner. The board is solved when
+     * this equals the number of cells.
+     */
+    private int inPlace;
+
+    /**
+     * A Zobrist hash of cells: the XOR of zobrist(tile, index) over every
+     * cell. multiMove() updates it for just the cells it shifts, so it is
+     * always current without rehashing the board.
+     */
+    private long zobrist;
+
+    /**
+     * The most runs the history keeps unless setHistoryLimit() is called. A
+     * turn made by clicking is one run, stored in one int.
+     */
+    public static final int DEFAULT_HISTORY_LIMIT = 1 << 20;
+
+    /**
+     * The fewest turns between checkpoints. Boards with more cells than this
+     * leave one every cells.length turns instead, so replaying the turns
+     * between two checkpoints costs about as much as restoring one and the
+     * checkpoints take a few bytes a turn at most.
+     */
+    private static final int CHECKPOINT_INTERVAL = 256;
+
+    /**
+     * The turns that can be undone, most recent last, followed by the turns
+     * that can be redone. Each turn is stored as the direction and distance
+     * the blank moved instead of as Move objects, and the oldest turns are
+     * dropped past the history limit. It is rebuilt
+     * from and converted back into the stack of stacks of Moves the file
+     * formats use.
+     */
+    private History history;
 
     /**
-     * Instantiates a new 2d Integer array for tiles and a new Stack for turns.
-     * tiles is initialized in its solved state. Use shuffle() to randomize it.
+     * Instantiates a new flat int array for cells and a new history.
+     * cells is initialized in its solved state. Use shuffle() to randomize it.
      *
      * @param width The width of the board
      * @param height The height of the board
      */
     public Board(int width, int height)
     {
-        this.tiles = new Integer[width][height];
+        this.width = width;
+        this.height = height;
+        this.cells = new int[width * height];
         for (int i = 1; i < width * height; ++i)
         {
-            this.tiles[(i - 1) % width][(i - 1) / width] = i;
+            this.cells[i - 1] = i;
+        }
+        this.blank = width * height - 1;
+        this.inPlace = width * height;
+        for (int k = 0; k < this.cells.length; ++k)
+        {
+            this.zobrist ^= zobrist(this.cells[k], k);
+        }
+        this.history = new History(DEFAULT_HISTORY_LIMIT);
+    }
+
+    /**
+     * Makes a board holding the given tiles, with no turns. The tiles don't
+     * have to be solvable.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param tiles The tiles left to right and top to bottom, with BLANK for
+     * the empty tile
+     * @throws IllegalArgumentException If tiles isn't every tile of the board
+     * once
+     */
+    public Board(int width, int height, int[] tiles)
+    {
+        this(width, height);
+        if (tiles.length != this.cells.length)
+        {
+            throw new IllegalArgumentException(tiles.length + " tiles don't fit a " + width + "x" + height + " board");
+        }
+        this.blank = checkTiles(tiles);
+        System.arraycopy(tiles, 0, this.cells, 0, tiles.length);
+        recount();
+    }
+
+    /**
+     * Checks if a cell holds the tile it holds in the solved state.
+     *
+     * @param index The index of the cell in cells
+     * @return 1 if the tile is in place, 0 if not
+     */
+    private int atHome(int index)
+    {
+        return home(this.cells[index]) == index ? 1 : 0;
+    }
+
+    /**
+     * Recounts inPlace and rehashes zobrist from scratch. Only needed when
+     * cells is replaced wholesale, multiMove() keeps them current
+     * otherwise.
+     */
+    private void recount()
+    {
+        this.inPlace = 0;
+        this.zobrist = 0;
+        for (int k = 0; k < this.cells.length; ++k)
+        {
+            this.inPlace += atHome(k);
+            this.zobrist ^= zobrist(this.cells[k], k);
+        }
+    }
+
+    /**
+     * The Zobrist key of one tile in one cell. Instead of a table of random
+     * numbers, which would need (width * height)^2 entries, the pair is run
+     * through the SplitMix64 finalizer, which gives the same independent
+     * looking bits for any board size.
+     *
+     * @param tile The tile, or BLANK
+     * @param index The index of the cell
+     * @return The key for that tile being in that cell
+     */
+    private static long zobrist(int tile, int index)
+    {
+        long z = (((long) tile << 32) | index) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Moves the blank space some number of cells in one direction. All the
+     * tiles it passes move one position toward where it was. queryTile()
+     * records the whole shift as one turn, so that this whole move can be
+     * undone with only one call to undo(), and undo() calls this to move the
+     * blank back the other way.
+     *
+     * The tiles are shifted rather than swapped one at a time: a row segment
+     * with one System.arraycopy() and a column segment with one strided
+     * copy. inPlace and zobrist are updated for just the cells in the
+     * segment.
+     *
+     * @param direction The direction the blank moves in, from History
+     * @param length How many cells it moves
+     */
+    private void multiMove(int direction, int length)
+    {
+        int step = step(direction);
+        int start = this.blank;
+        int end = start + length * step;
+        int low = Math.min(start, end);
+        int high = Math.max(start, end);
+        int stride = Math.abs(step);
+        for (int k = low; k <= high; k += stride)
+        {
+            this.inPlace -= atHome(k);
+            this.zobrist ^= zobrist(this.cells[k], k);
+        }
+        if (direction == History.RIGHT)
+        {
+            System.arraycopy(this.cells, start + 1, this.cells, start, length);
+        } else if (direction == History.LEFT)
+        {
+            System.arraycopy(this.cells, end, this.cells, end + 1, length);
+        } else
+        {
+            for (int k = start; k != end; k += step)
+            {
+                this.cells[k] = this.cells[k + step];
+            }
+        }
+        this.cells[end] = BLANK;
+        this.blank = end;
+        for (int k = low; k <= high; k += stride)
+        {
+            this.inPlace += atHome(k);
+            this.zobrist ^= zobrist(this.cells[k], k);
+        }
+    }
+
+    /**
+     * Gets how far the blank's index changes when it moves one cell.
+     *
+     * @param direction The direction, from History
+     * @return The change in the index
+     */
+    private int step(int direction)
+    {
+        int rtnval;
+        switch (direction)
+        {
+            case History.UP:
+                rtnval = -this.width;
+                break;
+            case History.RIGHT:
+                rtnval = 1;
+                break;
+            case History.DOWN:
+                rtnval = this.width;
+                break;
+            default:
+                rtnval = -1;
+                break;
         }
-        this.turns = new ArrayDeque<>();
+        return rtnval;
+    }
+
+    /**
+     * Shuffles the tiles on the Board. It re-shuffles if a solved board is
+     * generated. Then uses checkSolvable() and swaps the first two non-null
+     * tiles if checkSolvable() returns false. This saves time because the
+     * board doesn't have to be shuffled anywhere from one to infinity more
+     * times. However, I think swapping instead of re-shuffling could give the
+     * player a slight edge. This method also clears turns.
+     */
+    public void shuffle()
+    {
+        shuffle(ThreadLocalRandom.current()::nextInt);
     }
 
     /**
-     * Switches two tiles.
+     * Shuffles the tiles on the Board the same way as shuffle(), but the
+     * same seed always gives the same puzzle.
      *
-     * @param move Defines the two tiles being swapped
+     * @param seed The seed for the random numbers
      */
-    private void executeMove(Move move)
+    public void shuffle(long seed)
     {
-        Integer temp = this.tiles[move.getX1()][move.getY1()];
-        this.tiles[move.getX1()][move.getY1()] = this.tiles[move.getX2()][move.getY2()];
-        this.tiles[move.getX2()][move.getY2()] = temp;
+        shuffle(new SplittableRandom(seed)::nextInt);
     }
 
     /**
-     * Executes the turns required to move a group of tiles in the direction of
-     * the blank space (the null tile). To work, the position of the blank space
-     * and a designated tile are passed in. All the tiles between these two, and
-     * the designated tile, move one position toward the blank space and the
-     * blank space gets moved to the position of the designated tile. This
-     * entire shift is returned as a stack of turns, to be added to turns, so
-     * that this whole move can be undone with only one call to undo(). This
-     * method will return an empty stack if the two passed in positions are on a
-     * separate row and a separate column or they are the same tile. i.e. The
-     * two passed in tiles must shared one and only one coordinate(logical XOR).
+     * Shuffles the tiles on the Board the same way as shuffle(), taking its
+     * random numbers from random. Random::nextInt and SplittableRandom::nextInt
+     * both fit. The cells are shuffled in place with a Fisher-Yates shuffle,
+     * so it takes one pass and creates no Moves. On a board one cell wide or
+     * high the tiles can never change order, so only the blank is moved, to a
+     * random cell.
      *
-     * @param x
-     * @param y
-     * @param blankX
-     * @param blankY
-     * @return A stack of every move performed
+     * @param random Gives a random number from 0 up to but not including the
+     * number passed to it
      */
-    private ArrayDeque<Move> multiMove(int x, int y, int blankX, int blankY)
+    public void shuffle(IntUnaryOperator random)
     {
-        ArrayDeque<Move> rtnval = new ArrayDeque<>();
-        if (x == blankX)
+        do
         {
-            if (y < blankY)
+            if (this.width == 1 || this.height == 1)
             {
-                for (int j = blankY; j > y; --j)
+                this.blank = random.applyAsInt(this.cells.length);
+                for (int k = 0; k < this.cells.length; ++k)
                 {
-                    Move m = new Move(x, j, x, j - 1);
-                    executeMove(m);
-                    rtnval.push(m);
+                    this.cells[k] = k < this.blank ? k + 1 : k;
                 }
+                this.cells[this.blank] = BLANK;
             } else
             {
-                for (int j = blankY; j < y; ++j)
+                for (int k = this.cells.length - 1; k > 0; --k)
                 {
-                    Move m = new Move(x, j, x, j + 1);
-                    executeMove(m);
-                    rtnval.push(m);
+                    swap(k, random.applyAsInt(k + 1));
                 }
-            }
-        } else if (y == blankY)
-        {
-            if (x < blankX)
-            {
-                for (int i = blankX; i > x; --i)
+                for (int k = 0; k < this.cells.length; ++k)
                 {
-                    Move m = new Move(i, y, i - 1, y);
-                    executeMove(m);
-                    rtnval.push(m);
+                    if (this.cells[k] == BLANK)
+                    {
+                        this.blank = k;
+                    }
                 }
-            } else
-            {
-                for (int i = blankX; i < x; ++i)
+                /* Swapping two tiles flips the parity without moving the
+                blank. There are always two tiles in the first three cells. */
+                if (!checkSolvable())
                 {
-                    Move m = new Move(i, y, i + 1, y);
-                    executeMove(m);
-                    rtnval.push(m);
+                    int first = this.cells[0] == BLANK ? 1 : 0;
+                    int second = this.cells[first + 1] == BLANK ? first + 2 : first + 1;
+                    swap(first, second);
                 }
             }
-        }
-        return rtnval;
+            recount();
+        } while (checkSolved() && this.cells.length > 1);
+        this.history.clear();
     }
 
     /**
-     * Shuffles the tiles on the Board. It re-shuffles if a solved board is
-     * generated. Then uses checkSolvable() and swaps the first two non-null
-     * tiles on the first row if checkSolvable() returns false. This saves time
-     * because the board doesn't have to be shuffled anywhere from one to
-     * infinity more times. However, I think swapping instead of re-shuffling
-     * could give the player a slight edge. This method also clears turns,
-     * because this method randomly swaps tiles with executeMove().
+     * Scrambles the Board by walking the blank around at random, starting
+     * from wherever it is. The walk never goes straight back to the cell it
+     * just left unless it is at a dead end, so the board ends up about steps
+     * moves from where it started and is always solvable. A short walk on a
+     * small board can still end up solved. This method also clears turns.
+     *
+     * @param steps How many moves the blank makes
+     * @param seed The seed for the random numbers
      */
-    public void shuffle()
+    public void randomWalk(int steps, long seed)
+    {
+        randomWalk(steps, new SplittableRandom(seed)::nextInt);
+    }
+
+    /**
+     * Scrambles the Board the same way as randomWalk(int, long), taking its
+     * random numbers from random.
+     *
+     * @param steps How many moves the blank makes
+     * @param random Gives a random number from 0 up to but not including the
+     * number passed to it
+     */
+    public void randomWalk(int steps, IntUnaryOperator random)
     {
-        while (checkSolved())
+        int[] options = new int[4];
+        int previous = -1;
+        for (int i = 0; i < steps; ++i)
         {
-            Random rand = new Random();
-            for (int i = 0; i < this.tiles.length; ++i)
+            int x = this.blank % this.width;
+            int y = this.blank / this.width;
+            int count = 0;
+            if (y > 0 && this.blank - this.width != previous)
+            {
+                options[count++] = this.blank - this.width;
+            }
+            if (x < this.width - 1 && this.blank + 1 != previous)
+            {
+                options[count++] = this.blank + 1;
+            }
+            if (y < this.height - 1 && this.blank + this.width != previous)
+            {
+                options[count++] = this.blank + this.width;
+            }
+            if (x > 0 && this.blank - 1 != previous)
             {
-                for (int j = 0; j < this.tiles[0].length; ++j)
+                options[count++] = this.blank - 1;
+            }
+            if (count == 0)
+            {
+                //Only a board 1 wide or 1 high has dead ends
+                if (previous < 0)
                 {
-                    executeMove(new Move(
-                            i,
-                            j,
-                            rand.nextInt(this.tiles.length),
-                            rand.nextInt(this.tiles[0].length)));
+                    break;
                 }
+                options[count++] = previous;
             }
+            int next = options[random.applyAsInt(count)];
+            swap(this.blank, next);
+            previous = this.blank;
+            this.blank = next;
         }
-        /* This can throw an exception if the width of the board is less than 3.
-         * I put a check in to reshuffle instead of swap if the width is less
-         * than 3, but now it sometimes causes stack overflows. */
-        if (!checkSolvable())
+        recount();
+        this.history.clear();
+    }
+
+    /**
+     * Plays a sequence of moves in one call, for checking recorded games.
+     * Each move slides the blank one cell in a direction: UP, RIGHT, DOWN or
+     * LEFT. Tiles are swapped without keeping the solved count or hash
+     * current, which are recounted once at the end, so a long sequence costs
+     * about one array write per move. Playing stops at the first move that
+     * would take the blank off the board. This method also clears turns.
+     *
+     * @param directions The directions the blank moves in
+     * @return How many moves were made and the state the board was left in
+     */
+    public ReplayResult replay(int[] directions)
+    {
+        return replay(directions, null, directions.length);
+    }
+
+    /**
+     * Plays a sequence of moves written as letters, U, R, D and L for the
+     * directions the blank moves in, the same way as replay(int[]). Any
+     * other character is an illegal move.
+     *
+     * @param moves The moves, e.g. "UURDL"
+     * @return How many moves were made and the state the board was left in
+     */
+    public ReplayResult replay(CharSequence moves)
+    {
+        return replay(null, moves, moves.length());
+    }
+
+    /**
+     * Plays moves from either an array of directions or a string of letters.
+     * Moves are made from tables by direction, so the only branches are the
+     * ones that find an illegal move, and they are almost never taken.
+     *
+     * @param directions The directions, or null to read letters
+     * @param letters The letters, if directions is null
+     * @param count How many moves there are
+     * @return How many moves were made and the state the board was left in
+     */
+    private ReplayResult replay(int[] directions, CharSequence letters, int count)
+    {
+        int[] tiles = this.cells;
+        int[] steps =
         {
-            if (this.tiles[0][0] == null)
-            {
-                if (this.tiles.length < 3)
-                {
-                    shuffle();
-                } else
-                {
-                    executeMove(new Move(1, 0, 2, 0));
-                }
-            } else if (this.tiles[1][0] == null)
+            -this.width, 1, this.width, -1
+        };
+        int position = this.blank;
+        int x = position % this.width;
+        int y = position / this.width;
+        int illegal = -1;
+        for (int i = 0; i < count; ++i)
+        {
+            int direction = directions != null ? directions[i] : direction(letters.charAt(i));
+            if ((direction & ~3) != 0)
             {
-                if (this.tiles.length < 3)
-                {
-                    shuffle();
-                } else
-                {
-                    executeMove(new Move(0, 0, 2, 0));
-                }
-            } else
+                illegal = i;
+                break;
+            }
+            int nextX = x + COLUMN_STEPS[direction];
+            int nextY = y + ROW_STEPS[direction];
+            if ((nextX | nextY) < 0 || nextX >= this.width || nextY >= this.height)
             {
-                executeMove(new Move(0, 0, 1, 0));
+                illegal = i;
+                break;
             }
+            int next = position + steps[direction];
+            tiles[position] = tiles[next];
+            position = next;
+            x = nextX;
+            y = nextY;
         }
-        this.turns = new ArrayDeque<>();
+        tiles[position] = BLANK;
+        this.blank = position;
+        recount();
+        this.history.clear();
+        return new ReplayResult(illegal < 0 ? count : illegal, illegal, checkSolved(), this.zobrist);
+    }
+
+    /**
+     * Reads a move letter.
+     *
+     * @param letter U, R, D or L
+     * @return The direction, or -1 for any other character
+     */
+    private static int direction(char letter)
+    {
+        return letter < LETTERS.length ? LETTERS[letter] : -1;
+    }
+
+    /**
+     * Makes the table of move letters.
+     *
+     * @return The direction of every ASCII character, -1 for all but U, R, D
+     * and L
+     */
+    private static byte[] letters()
+    {
+        byte[] rtnval = new byte[128];
+        Arrays.fill(rtnval, (byte) -1);
+        rtnval['U'] = UP;
+        rtnval['R'] = RIGHT;
+        rtnval['D'] = DOWN;
+        rtnval['L'] = LEFT;
+        return rtnval;
+    }
+
+    /**
+     * Swaps two cells without keeping inPlace, zobrist or blank current, for
+     * shuffling and random walks.
+     *
+     * @param a The index of the first cell
+     * @param b The index of the second cell
+     */
+    private void swap(int a, int b)
+    {
+        int tile = this.cells[a];
+        this.cells[a] = this.cells[b];
+        this.cells[b] = tile;
     }
 
     /**
@@ -187,54 +585,147 @@ public class Board implements Serializable
     @Override
     public boolean equals(Object other)
     {
-        boolean rtnbool = true;
+        boolean rtnbool = false;
         if (other instanceof Board)
         {
-            for (int i = 0; i < this.tiles.length; ++i)
-            {
-                for (int j = 0; (j < this.tiles[0].length) && (rtnbool == true); ++j)
-                {
-                    if (this.tiles[i][j] != null)
-                    {
-                        if (!(this.tiles[i][j].equals(((Board) other).getTiles()[i][j])))
-                        {
-                            rtnbool = false;
-                        }
-                    } else if (((Board) other).getTiles()[i][j] != null)
-                    {
-                        rtnbool = false;
-                    }
-                }
-            }
-        } else
-        {
-            rtnbool = false;
+            Board board = (Board) other;
+            rtnbool = this.width == board.width
+                    && this.height == board.height
+                    && Arrays.equals(this.cells, board.cells);
         }
         return rtnbool;
     }
 
     /**
-     * I only put this here so NetBeans would stop giving me a warning message.
+     * Folds the Zobrist hash of the tiles into an int. Like equals(), turns
+     * are ignored.
      *
-     * @return
+     * @return The hash code of the tiles
      */
     @Override
     public int hashCode()
     {
-        return 0;
+        return (int) (this.zobrist ^ (this.zobrist >>> 32));
+    }
+
+    /**
+     * Returns the full 64 bit Zobrist hash of the tiles. It is kept up to date
+     * as moves are made, so this costs nothing, but different boards can
+     * share a hash. Use toKey() when an exact key is needed.
+     *
+     * @return The Zobrist hash of the tiles
+     */
+    public long zobristHash()
+    {
+        return this.zobrist;
+    }
+
+    /**
+     * Packs the tiles into a single long, 4 bits per cell with the first cell
+     * in the lowest bits. Two boards of the same size have the same key only
+     * if they are equal. This only fits boards of 16 cells or fewer, i.e. up
+     * to 4x4.
+     *
+     * @return The tiles packed into a long
+     * @throws IllegalStateException If the board has more than 16 cells
+     */
+    public long toLongKey()
+    {
+        if (this.cells.length > 16)
+        {
+            throw new IllegalStateException("A " + this.width + "x" + this.height
+                    + " board doesn't fit in a long key, use toKey()");
+        }
+        long rtnval = 0;
+        for (int k = this.cells.length - 1; k >= 0; --k)
+        {
+            rtnval = (rtnval << 4) | this.cells[k];
+        }
+        return rtnval;
+    }
+
+    /**
+     * Packs the tiles into as few longs as possible. Every cell takes just
+     * enough bits to hold the largest tile (5 for a 5x5, so it fits in 128
+     * bits) and cells may straddle two longs. Two boards of the same size
+     * have equal keys only if they are equal. The key doesn't hold the
+     * dimensions, so it shouldn't be used to tell boards of different sizes
+     * apart.
+     *
+     * @return The tiles packed into a long array
+     */
+    public long[] toKey()
+    {
+        return pack(this.cells);
+    }
+
+    /**
+     * Packs tiles the way toKey() does.
+     *
+     * @param tiles The tiles, in the order of cells
+     * @return The tiles packed into a long array
+     */
+    private static long[] pack(int[] tiles)
+    {
+        int bits = 32 - Integer.numberOfLeadingZeros(tiles.length - 1);
+        long[] rtnval = new long[(int) (((long) bits * tiles.length + 63) / 64)];
+        long bit = 0;
+        for (int k = 0; k < tiles.length; ++k)
+        {
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            rtnval[word] |= (long) tiles[k] << shift;
+            if (shift + bits > 64)
+            {
+                rtnval[word + 1] |= (long) tiles[k] >>> (64 - shift);
+            }
+            bit += bits;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Replaces the tiles with ones packed by toKey() and brings blank,
+     * inPlace and zobrist up to date.
+     *
+     * @param key The packed tiles of a board the same size as this one
+     */
+    private void unpack(long[] key)
+    {
+        int bits = 32 - Integer.numberOfLeadingZeros(this.cells.length - 1);
+        long mask = (1L << bits) - 1;
+        long bit = 0;
+        for (int k = 0; k < this.cells.length; ++k)
+        {
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long tile = key[word] >>> shift;
+            if (shift + bits > 64)
+            {
+                tile |= key[word + 1] << (64 - shift);
+            }
+            this.cells[k] = (int) (tile & mask);
+            if (this.cells[k] == BLANK)
+            {
+                this.blank = k;
+            }
+            bit += bits;
+        }
+        recount();
     }
 
     /**
      * Checks to see if the board is in its solved state. The solved state is,
      * starting with 1 in the top left corner, all of the numbers, in order,
      * left to right and top to bottom (like how text is read), with the empty
-     * space (the null tile) in the bottom right corner.
+     * space (the null tile) in the bottom right corner. This only reads the
+     * running count of tiles in place, so it doesn't look at the tiles.
      *
      * @return True if this is in its solved state, false if not
      */
     public boolean checkSolved()
     {
-        return this.equals(new Board(this.tiles.length, this.tiles[0].length));
+        return this.inPlace == this.cells.length;
     }
 
     /**
@@ -248,78 +739,501 @@ public class Board implements Serializable
      * @param x The horizontal index of the tile
      * @param y The vertical index of the tile
      * @return True if a move was made that solved the puzzle, false if not
+     * @throws IndexOutOfBoundsException If the tile is off the board
      */
     public boolean queryTile(int x, int y)
     {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height)
+        {
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is off the "
+                    + this.width + "x" + this.height + " board");
+        }
         boolean rtnbool = false;
-        if (x > 0 && this.tiles[x - 1][y] == null)
-        {
-            Move m = new Move(x, y, x - 1, y);
-            executeMove(m);
-            ArrayDeque<Move> s = new ArrayDeque();
-            s.push(m);
-            this.turns.push(s);
-            rtnbool = checkSolved();
-        } else if (y > 0 && this.tiles[x][y - 1] == null)
-        {
-            Move m = new Move(x, y, x, y - 1);
-            executeMove(m);
-            ArrayDeque<Move> s = new ArrayDeque();
-            s.push(m);
-            this.turns.push(s);
-            rtnbool = checkSolved();
-        } else if (x < this.tiles.length - 1 && this.tiles[x + 1][y] == null)
-        {
-            Move m = new Move(x, y, x + 1, y);
-            executeMove(m);
-            ArrayDeque<Move> s = new ArrayDeque();
-            s.push(m);
-            this.turns.push(s);
-            rtnbool = checkSolved();
-        } else if (y < this.tiles[0].length - 1 && this.tiles[x][y + 1] == null)
-        {
-            Move m = new Move(x, y, x, y + 1);
-            executeMove(m);
-            ArrayDeque<Move> s = new ArrayDeque();
-            s.push(m);
-            this.turns.push(s);
-            rtnbool = checkSolved();
+        int index = y * this.width + x;
+        int direction = -1;
+        int length = 0;
+        if (x > 0 && index - 1 == this.blank)
+        {
+            direction = History.RIGHT;
+            length = 1;
+        } else if (y > 0 && index - this.width == this.blank)
+        {
+            direction = History.DOWN;
+            length = 1;
+        } else if (x < this.width - 1 && index + 1 == this.blank)
+        {
+            direction = History.LEFT;
+            length = 1;
+        } else if (y < this.height - 1 && index + this.width == this.blank)
+        {
+            direction = History.UP;
+            length = 1;
         } else
         {
-            int blankX = -1;
-            int blankY = -1;
-            for (int j = 0; j < this.tiles[0].length; ++j)
+            int blankX = getBlankX();
+            int blankY = getBlankY();
+            //The two tiles must share one and only one coordinate (logical XOR)
+            if (x == blankX && y != blankY)
             {
-                for (int i = 0; i < this.tiles.length && blankX == -1; ++i)
-                {
-                    if (this.tiles[i][j] == null)
-                    {
-                        blankX = i;
-                        blankY = j;
-                    }
-                }
-            }
-            if ((x == blankX) ^ (y == blankY))
+                direction = y < blankY ? History.UP : History.DOWN;
+                length = Math.abs(y - blankY);
+            } else if (y == blankY && x != blankX)
             {
-                this.turns.push(multiMove(x, y, blankX, blankY));
-                rtnbool = checkSolved();
+                direction = x < blankX ? History.LEFT : History.RIGHT;
+                length = Math.abs(x - blankX);
             }
         }
+        if (length > 0)
+        {
+            rtnbool = turn(direction, length);
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Plays one packed move as a turn, the same as clicking the tile it
+     * slides. See Move for how moves are packed.
+     *
+     * @param move The packed move
+     * @return True if the move solved the puzzle, false if not
+     * @throws IllegalArgumentException If the blank isn't where the move
+     * starts or the move would take it off the board
+     */
+    public boolean applyMove(int move)
+    {
+        int direction = Move.direction(move);
+        if (Move.blank(move) != this.blank || !fits(direction, 1))
+        {
+            throw new IllegalArgumentException("The move " + Move.blank(move) + " " + "URDL".charAt(direction)
+                    + " can't be made with the blank at " + this.blank);
+        }
+        return turn(direction, 1);
+    }
+
+    /**
+     * Moves the blank and records it as a turn, leaving a checkpoint if it is
+     * time for one.
+     *
+     * @param direction The direction the blank moves in
+     * @param length How many cells it moves
+     * @return True if the turn solved the puzzle, false if not
+     * @throws IndexOutOfBoundsException If the blank would leave its row or
+     * column
+     */
+    private boolean turn(int direction, int length)
+    {
+        if (!fits(direction, length))
+        {
+            throw new IndexOutOfBoundsException("The blank at " + this.blank + " can't move "
+                    + length + " " + "URDL".charAt(direction) + " on a " + this.width + "x" + this.height + " board");
+        }
+        multiMove(direction, length);
+        this.history.push(direction, length);
+        if (this.history.sinceCheckpoint() >= checkpointInterval())
+        {
+            this.history.checkpoint(toKey());
+        }
+        return checkSolved();
+    }
+
+    /**
+     * Checks that the blank can move some number of cells in a direction
+     * without leaving its row or column.
+     *
+     * @param direction The direction the blank moves in
+     * @param length How many cells it moves
+     * @return True if every cell it passes is on the board
+     */
+    private boolean fits(int direction, int length)
+    {
+        boolean rtnbool;
+        switch (direction)
+        {
+            case UP:
+                rtnbool = length <= getBlankY();
+                break;
+            case RIGHT:
+                rtnbool = length < this.width - getBlankX();
+                break;
+            case DOWN:
+                rtnbool = length < this.height - getBlankY();
+                break;
+            case LEFT:
+                rtnbool = length <= getBlankX();
+                break;
+            default:
+                rtnbool = false;
+        }
         return rtnbool;
     }
 
     /**
-     * Executes the move on top of turns. i.e. undoes the most recent move, due
-     * to turns being able to undo themselves. Because executeMoves() is what
-     * pushes turns onto the stack, a move is popped, then pushed back on, and
-     * must be popped again.
+     * Undoes the most recent turn by moving the blank back the way it came.
+     *
+     * @throws java.util.NoSuchElementException If there are no turns to undo
      */
     public void undo()
     {
-        ArrayDeque<Move> undoDeque = this.turns.pop();
-        while (!undoDeque.isEmpty())
+        int run;
+        do
+        {
+            run = this.history.pop();
+            multiMove((History.direction(run) + 2) % 4, History.length(run));
+        } while (History.continues(run));
+    }
+
+    /**
+     * Redoes the most recently undone turn. Undone turns can be redone until
+     * a new turn is made.
+     *
+     * @throws java.util.NoSuchElementException If there are no turns to redo
+     */
+    public void redo()
+    {
+        do
+        {
+            int run = this.history.unpop();
+            multiMove(History.direction(run), History.length(run));
+        } while (this.history.redoContinues());
+    }
+
+    /**
+     * Undoes or redoes turns until the given number of turns have been made.
+     * The board is restored from the nearest checkpoint first if that is
+     * closer than where it is now, so seeking anywhere in a long history
+     * replays at most half the turns between two checkpoints.
+     *
+     * @param turn The number of turns, from 0 for the oldest state the
+     * history still has up to getTurnCount()
+     * @throws IndexOutOfBoundsException If turn is out of that range
+     */
+    public void seek(int turn)
+    {
+        if (turn < 0 || turn > getTurnCount())
+        {
+            throw new IndexOutOfBoundsException("Turn " + turn + " of " + getTurnCount());
+        }
+        long target = this.history.dropped() + turn;
+        Map.Entry<Long, History.Checkpoint> nearest = this.history.nearestCheckpoint(target);
+        if (nearest != null
+                && Math.abs(nearest.getKey() - target) < Math.abs(this.history.position() - target))
+        {
+            unpack(nearest.getValue().key);
+            this.history.jump(nearest.getKey(), nearest.getValue());
+        }
+        while (this.history.position() < target)
+        {
+            redo();
+        }
+        while (this.history.position() > target)
+        {
+            undo();
+        }
+    }
+
+    /**
+     * @return The number of turns made since the oldest state the history
+     * still has, which is how many turns can be undone
+     */
+    public int getTurnIndex()
+    {
+        return this.history.turns();
+    }
+
+    /**
+     * @return The number of turns that can be undone plus the number that
+     * can be redone
+     */
+    public int getTurnCount()
+    {
+        return this.history.turns() + this.history.redoTurns();
+    }
+
+    /**
+     * @return True if there are no turns to redo
+     */
+    public boolean redoEmpty()
+    {
+        return this.history.redoTurns() == 0;
+    }
+
+    /**
+     * @return How many turns apart checkpoints are left
+     */
+    private int checkpointInterval()
+    {
+        return Math.max(CHECKPOINT_INTERVAL, this.cells.length);
+    }
+
+    /**
+     * Leaves the checkpoints a freshly loaded history would have had if its
+     * turns had been made on this board, by undoing them on a copy of the
+     * tiles.
+     */
+    private void rebuildCheckpoints()
+    {
+        int interval = checkpointInterval();
+        int turn = this.history.turns();
+        int[] tiles = this.cells.clone();
+        int position = this.blank;
+        for (int age = 0; turn > interval && age < this.history.size(); ++age)
         {
-            executeMove(undoDeque.pop());
+            int run = this.history.peek(age);
+            int step = step(History.direction(run));
+            for (int k = 0; k < History.length(run); ++k)
+            {
+                tiles[position] = tiles[position - step];
+                position -= step;
+            }
+            tiles[position] = BLANK;
+            if (!History.continues(run))
+            {
+                --turn;
+                if (turn % interval == 0)
+                {
+                    this.history.checkpoint(turn, this.history.size() - 1 - age, pack(tiles));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the most runs the history keeps, dropping the oldest turns if it
+     * already has more, after throwing away the turns that can be redone. A
+     * turn made by clicking is one run.
+     *
+     * @param limit The limit, at least 1
+     */
+    public void setHistoryLimit(int limit)
+    {
+        this.history.setLimit(limit);
+    }
+
+    public int getHistoryLimit()
+    {
+        return this.history.getLimit();
+    }
+
+    /**
+     * Called by forEachMove() for every turn and move in the history, in the
+     * order undo() would undo them.
+     */
+    private interface TurnVisitor
+    {
+
+        /**
+         * Starts a turn.
+         *
+         * @param moves How many moves are in the turn
+         * @throws IOException If the visitor is writing and can't
+         */
+        void turn(int moves) throws IOException;
+
+        /**
+         * Visits one move, the swap of two cells.
+         *
+         * @param a The index of the first cell
+         * @param b The index of the second cell
+         * @throws IOException If the visitor is writing and can't
+         */
+        void move(int a, int b) throws IOException;
+
+        /**
+         * Ends a turn.
+         *
+         * @throws IOException If the visitor is writing and can't
+         */
+        default void endTurn() throws IOException
+        {
+        }
+    }
+
+    /**
+     * Walks the history from the most recent turn back, turning each run back
+     * into the moves the old stack of stacks held. A turn of one move is
+     * written the way a single click wrote it, from where the blank ended up
+     * to where it was, and longer turns from where the blank was to where it
+     * ended up, the way multiMove() wrote them.
+     *
+     * @param visitor Gets every turn and move
+     * @throws IOException If the visitor throws
+     */
+    private void forEachMove(TurnVisitor visitor) throws IOException
+    {
+        int position = this.blank;
+        int age = 0;
+        while (age < this.history.size())
+        {
+            int last = age;
+            int moves = History.length(this.history.peek(last));
+            while (History.continues(this.history.peek(last)))
+            {
+                ++last;
+                moves += History.length(this.history.peek(last));
+            }
+            visitor.turn(moves);
+            for (; age <= last; ++age)
+            {
+                int run = this.history.peek(age);
+                int step = step(History.direction(run));
+                for (int k = 0; k < History.length(run); ++k)
+                {
+                    int before = position - step;
+                    if (moves == 1)
+                    {
+                        visitor.move(position, before);
+                    } else
+                    {
+                        visitor.move(before, position);
+                    }
+                    position = before;
+                }
+            }
+            visitor.endTurn();
+        }
+    }
+
+    /**
+     * Rebuilds the history from moves in the order forEachMove() gives them,
+     * most recent turn first. Each move has to move the blank one cell, going
+     * back from where it is now.
+     */
+    private class TurnLoader
+    {
+
+        /**
+         * The width and number of cells of the board the turns are for.
+         */
+        private final int width, length;
+
+        /**
+         * Where the blank is after undoing every move loaded so far.
+         */
+        private int position;
+
+        /**
+         * The runs loaded so far, most recent first, with NEW_TURN set on the
+         * most recent run of each turn.
+         */
+        private int[] runs = new int[16];
+
+        /**
+         * How many runs have been loaded.
+         */
+        private int size;
+
+        /**
+         * True until the first move of a turn has been loaded.
+         */
+        private boolean turnStart;
+
+        /**
+         * Marks the most recent run of a turn in runs.
+         */
+        private static final int NEW_TURN = 1 << 2;
+
+        /**
+         * Loads turns for this board as it is now.
+         */
+        TurnLoader()
+        {
+            this(Board.this.width, Board.this.cells.length, Board.this.blank);
+        }
+
+        /**
+         * Loads turns for a board that hasn't been stored in this one yet.
+         * finish() must only be called once it has.
+         *
+         * @param width The width of the board
+         * @param length How many cells the board has
+         * @param blank Where its blank is
+         */
+        TurnLoader(int width, int length, int blank)
+        {
+            this.width = width;
+            this.length = length;
+            this.position = blank;
+        }
+
+        /**
+         * Starts a turn.
+         */
+        void turn()
+        {
+            this.turnStart = true;
+        }
+
+        /**
+         * Loads one move.
+         *
+         * @param a The index of the first cell
+         * @param b The index of the second cell
+         * @throws IllegalArgumentException If the move doesn't move the blank
+         * to a neighbouring cell
+         */
+        void move(int a, int b)
+        {
+            int to = this.position == a ? b : this.position == b ? a : -1;
+            int undone = -1;
+            if (to >= 0 && to < this.length)
+            {
+                if (to == this.position - this.width)
+                {
+                    undone = History.UP;
+                } else if (to == this.position + this.width)
+                {
+                    undone = History.DOWN;
+                } else if (to == this.position + 1 && to % this.width != 0)
+                {
+                    undone = History.RIGHT;
+                } else if (to == this.position - 1 && this.position % this.width != 0)
+                {
+                    undone = History.LEFT;
+                }
+            }
+            if (undone < 0)
+            {
+                throw new IllegalArgumentException("The move between cells " + a + " and " + b
+                        + " doesn't slide the blank");
+            }
+            //The turn moved the blank the other way
+            int direction = (undone + 2) % 4;
+            if (!this.turnStart && this.size > 0 && History.direction(this.runs[this.size - 1]) == direction)
+            {
+                this.runs[this.size - 1] += 1 << 3;
+            } else
+            {
+                if (this.size == this.runs.length)
+                {
+                    this.runs = Arrays.copyOf(this.runs, this.size * 2);
+                }
+                this.runs[this.size++] = 1 << 3 | (this.turnStart ? NEW_TURN : 0) | direction;
+            }
+            this.turnStart = false;
+            this.position = to;
+        }
+
+        /**
+         * Replaces the history with the loaded turns, oldest first, and
+         * leaves checkpoints along them.
+         */
+        void finish()
+        {
+            Board.this.history.clear();
+            boolean newTurn = true;
+            for (int i = this.size - 1; i >= 0; --i)
+            {
+                int run = this.runs[i];
+                if (newTurn)
+                {
+                    Board.this.history.push(History.direction(run), History.length(run));
+                } else
+                {
+                    Board.this.history.extend(History.direction(run), History.length(run));
+                }
+                newTurn = (run & NEW_TURN) != 0;
+            }
+            rebuildCheckpoints();
         }
     }
 
@@ -334,21 +1248,22 @@ public class Board implements Serializable
     public String toString()
     {
         StringBuilder rtnstr = new StringBuilder();
-        int numberWidth = Integer.toString((this.tiles.length * this.tiles[0].length) - 1).length();
-        for (int j = 0; j < this.tiles[0].length; ++j)
+        int numberWidth = Integer.toString((this.width * this.height) - 1).length();
+        for (int j = 0; j < this.height; ++j)
         {
-            for (int i = 0; i < this.tiles.length; ++i)
+            for (int i = 0; i < this.width; ++i)
             {
-                if (this.tiles[i][j] != null)
+                int tile = this.cells[j * this.width + i];
+                if (tile != BLANK)
                 {
-                    rtnstr.append(String.format("%0" + numberWidth + "d ", this.tiles[i][j]));
+                    rtnstr.append(String.format("%0" + numberWidth + "d ", tile));
                 } else
                 {
                     rtnstr.append(String.format("%" + numberWidth + "s ", " "));
                 }
             }
             //adds a newline after each row execpt after the last row
-            if (j != this.tiles[0].length - 1)
+            if (j != this.height - 1)
             {
                 rtnstr.append("\n");
             }
@@ -357,67 +1272,281 @@ public class Board implements Serializable
     }
 
     /**
-     * Returns a string representation of this board in XML format. The tags
-     * are: board - The board, tiles - The tiles, dimensions - The dimensions of
-     * tiles, row - A row of tiles, turns - The turns, turn - A single turn,
-     * move - One move, x1 - The x1 of a move, y1 - The y1 of a move, x2 - The
-     * x2 of a move, y2 - The y2 of a move
+     * Returns a string representation of this board in XML format. The tags
+     * are: board - The board, tiles - The tiles, dimensions - The dimensions of
+     * tiles, row - A row of tiles, turns - The turns, turn - A single turn,
+     * move - One move, x1 - The x1 of a move, y1 - The y1 of a move, x2 - The
+     * x2 of a move, y2 - The y2 of a move
+     *
+     * @return A XML formatted string representation of this board
+     */
+    public String toXML()
+    {
+        StringWriter rtnstr = new StringWriter();
+        try
+        {
+            toXML(rtnstr);
+        } catch (IOException e)
+        {
+            //StringWriter never throws
+            throw new UncheckedIOException(e);
+        }
+        return rtnstr.toString();
+    }
+
+    /**
+     * Writes this board in the same XML format as toXML() straight to a
+     * Writer, a move at a time, so saving a long history doesn't build the
+     * whole document in memory first.
+     *
+     * @param out Where the XML is written
+     * @throws IOException If out can't be written to
+     */
+    public void toXML(Writer out) throws IOException
+    {
+        out.write("<board>\r\n");
+        out.write("    <tiles>\r\n");
+        out.write("        <dimensions>");
+        out.write(Integer.toString(this.width));
+        out.write(",");
+        out.write(Integer.toString(this.height));
+        out.write("</dimensions>\r\n");
+        for (int j = 0; j < this.height; ++j)
+        {
+            out.write("        <row>");
+            for (int i = 0; i < this.width; ++i)
+            {
+                int tile = this.cells[j * this.width + i];
+                if (tile != BLANK)
+                {
+                    out.write(Integer.toString(tile));
+                } else
+                {
+                    out.write("null");
+                }
+                if (i < this.width - 1)
+                {
+                    out.write(",");
+                }
+            }
+            out.write("</row>\r\n");
+        }
+        out.write("    </tiles>\r\n");
+        out.write("    <turns>\r\n");
+        forEachMove(new TurnVisitor()
+        {
+            @Override
+            public void turn(int moves) throws IOException
+            {
+                out.write("        <turn>\r\n");
+            }
+
+            @Override
+            public void move(int a, int b) throws IOException
+            {
+                out.write("            <move>\r\n");
+                out.write("                <x1>");
+                out.write(Integer.toString(a % Board.this.width));
+                out.write("</x1>\r\n");
+                out.write("                <y1>");
+                out.write(Integer.toString(a / Board.this.width));
+                out.write("</y1>\r\n");
+                out.write("                <x2>");
+                out.write(Integer.toString(b % Board.this.width));
+                out.write("</x2>\r\n");
+                out.write("                <y2>");
+                out.write(Integer.toString(b / Board.this.width));
+                out.write("</y2>\r\n");
+                out.write("            </move>\r\n");
+            }
+
+            @Override
+            public void endTurn() throws IOException
+            {
+                out.write("        </turn>\r\n");
+            }
+        });
+        out.write("    </turns>\r\n");
+        out.write("</board>");
+    }
+
+    /**
+     * Edits the fields of this object based on XML read by a pull parser. It
+     * reads the same format as fromXML(Scanner), but only looks at one
+     * element at a time, so loading a long history doesn't hold the document
+     * in memory.
+     *
+     * The tiles and turns are read into local arrays and checked the way
+     * readTiles() checks them, and the board is only changed once the whole
+     * board element has been read, so a bad file leaves it as it was. A file
+     * without turns loads with none.
+     *
+     * @param input A reader positioned before the board element
+     * @throws XMLStreamException If the XML can't be parsed or doesn't hold a
+     * whole board
+     */
+    public void fromXML(XMLStreamReader input) throws XMLStreamException
+    {
+        int newWidth = 0;
+        int newHeight = 0;
+        int[] newCells = null;
+        int newBlank = -1;
+        int rowNum = 0;
+        TurnLoader loader = null;
+        boolean inTurn = false;
+        int x1 = -1;
+        int y1 = -1;
+        int x2 = -1;
+        int y2 = -1;
+        boolean done = false;
+        try
+        {
+            while (!done && input.hasNext())
+            {
+                int event = input.next();
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    switch (input.getLocalName())
+                    {
+                        case "dimensions":
+                            String[] dimensions = input.getElementText().split(",");
+                            if (dimensions.length != 2)
+                            {
+                                throw new IllegalArgumentException("Bad board dimensions");
+                            }
+                            newWidth = Integer.parseInt(dimensions[0].trim());
+                            newHeight = Integer.parseInt(dimensions[1].trim());
+                            if (newWidth < 1 || newHeight < 1 || (long) newWidth * newHeight > Integer.MAX_VALUE - 8)
+                            {
+                                throw new IllegalArgumentException("Bad board dimensions " + newWidth + "x" + newHeight);
+                            }
+                            newCells = new int[newWidth * newHeight];
+                            break;
+                        case "row":
+                            if (newCells == null || rowNum >= newHeight)
+                            {
+                                throw new IllegalArgumentException("Row " + rowNum + " doesn't fit the board");
+                            }
+                            String[] numbers = input.getElementText().split(",");
+                            if (numbers.length != newWidth)
+                            {
+                                throw new IllegalArgumentException("Row " + rowNum + " has " + numbers.length
+                                        + " tiles on a board " + newWidth + " wide");
+                            }
+                            for (int i = 0; i < numbers.length; ++i)
+                            {
+                                String number = numbers[i].trim();
+                                newCells[rowNum * newWidth + i] = number.equals("null") ? BLANK : Integer.parseInt(number);
+                            }
+                            ++rowNum;
+                            break;
+                        case "turns":
+                            if (newBlank < 0)
+                            {
+                                throw new IllegalArgumentException("The turns come before the tiles");
+                            }
+                            loader = new TurnLoader(newWidth, newCells.length, newBlank);
+                            break;
+                        case "turn":
+                            if (loader != null)
+                            {
+                                loader.turn();
+                                inTurn = true;
+                            }
+                            break;
+                        case "move":
+                            x1 = -1;
+                            y1 = -1;
+                            x2 = -1;
+                            y2 = -1;
+                            break;
+                        case "x1":
+                            x1 = Integer.parseInt(input.getElementText().trim());
+                            break;
+                        case "y1":
+                            y1 = Integer.parseInt(input.getElementText().trim());
+                            break;
+                        case "x2":
+                            x2 = Integer.parseInt(input.getElementText().trim());
+                            break;
+                        case "y2":
+                            y2 = Integer.parseInt(input.getElementText().trim());
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    switch (input.getLocalName())
+                    {
+                        case "tiles":
+                            if (newCells == null || rowNum != newHeight)
+                            {
+                                throw new IllegalArgumentException(rowNum + " rows on a board " + newHeight + " high");
+                            }
+                            newBlank = checkTiles(newCells);
+                            break;
+                        case "move":
+                            if (inTurn && x1 != -1 && y1 != -1 && x2 != -1 && y2 != -1)
+                            {
+                                if (x1 < 0 || x1 >= newWidth || x2 < 0 || x2 >= newWidth)
+                                {
+                                    throw new IllegalArgumentException("A move is off the board");
+                                }
+                                loader.move(y1 * newWidth + x1, y2 * newWidth + x2);
+                            }
+                            break;
+                        case "turn":
+                            inTurn = false;
+                            break;
+                        case "board":
+                            done = true;
+                            break;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e)
+        {
+            throw new XMLStreamException(e.getMessage(), input.getLocation(), e);
+        }
+        if (newBlank < 0)
+        {
+            throw new XMLStreamException("No tiles on the board", input.getLocation());
+        }
+        this.width = newWidth;
+        this.height = newHeight;
+        this.cells = newCells;
+        this.blank = newBlank;
+        this.history.clear();
+        recount();
+        if (loader != null)
+        {
+            loader.finish();
+        }
+    }
+
+    /**
+     * Checks that tiles are every tile of a board once.
      *
-     * @return A XML formatted string representation of this board
+     * @param tiles The tiles, left to right and top to bottom
+     * @return The index of the blank
+     * @throws IllegalArgumentException If a tile is out of range or repeated
      */
-    public String toXML()
+    private static int checkTiles(int[] tiles)
     {
-        StringBuilder strbld = new StringBuilder();
-        strbld.append("<board>\r\n");
-        strbld.append("    <tiles>\r\n");
-        strbld.append("        <dimensions>");
-        strbld.append(this.tiles.length);
-        strbld.append(",");
-        strbld.append(this.tiles[0].length);
-        strbld.append("</dimensions>\r\n");
-        for (int j = 0; j < tiles[0].length; ++j)
-        {
-            strbld.append("        <row>");
-            for (int i = 0; i < this.tiles.length; ++i)
-            {
-                strbld.append(this.tiles[i][j]);
-                if (i < this.tiles.length - 1)
-                {
-                    strbld.append(",");
-                }
-            }
-            strbld.append("</row>\r\n");
-        }
-        strbld.append("    </tiles>\r\n");
-        strbld.append("    <turns>\r\n");
-        ArrayDeque<ArrayDeque<Move>> newTurns = (ArrayDeque<ArrayDeque<Move>>) this.turns.clone();
-        while (!newTurns.isEmpty())
+        int rtnval = -1;
+        boolean[] seen = new boolean[tiles.length];
+        for (int k = 0; k < tiles.length; ++k)
         {
-            ArrayDeque<Move> moves = newTurns.pop();
-            strbld.append("        <turn>\r\n");
-            while (!moves.isEmpty())
+            if (tiles[k] < 0 || tiles[k] >= tiles.length || seen[tiles[k]])
+            {
+                throw new IllegalArgumentException("Tile " + tiles[k] + " is out of range or repeated");
+            }
+            seen[tiles[k]] = true;
+            if (tiles[k] == BLANK)
             {
-                Move move = moves.pop();
-                strbld.append("            <move>\r\n");
-                strbld.append("                <x1>");
-                strbld.append(move.getX1());
-                strbld.append("</x1>\r\n");
-                strbld.append("                <y1>");
-                strbld.append(move.getY1());
-                strbld.append("</y1>\r\n");
-                strbld.append("                <x2>");
-                strbld.append(move.getX2());
-                strbld.append("</x2>\r\n");
-                strbld.append("                <y2>");
-                strbld.append(move.getY2());
-                strbld.append("</y2>\r\n");
-                strbld.append("            </move>\r\n");
+                rtnval = k;
             }
-            strbld.append("        </turn>\r\n");
         }
-        strbld.append("    </turns>\r\n");
-        strbld.append("</board>");
-        return strbld.toString();
+        return rtnval;
     }
 
     /**
@@ -444,7 +1573,9 @@ public class Board implements Serializable
                                 if (next.equals("dimensions"))
                                 {
                                     String[] dimensions = input.next().split(",");
-                                    this.tiles = new Integer[Integer.parseInt(dimensions[0])][Integer.parseInt(dimensions[1])];
+                                    this.width = Integer.parseInt(dimensions[0]);
+                                    this.height = Integer.parseInt(dimensions[1]);
+                                    this.cells = new int[this.width * this.height];
                                 } else if (next.equals("row"))
                                 {
                                     String[] numbers = input.next().split(",");
@@ -452,26 +1583,28 @@ public class Board implements Serializable
                                     {
                                         if (!numbers[i].equals("null"))
                                         {
-                                            this.tiles[i][rowNum] = Integer.parseInt(numbers[i]);
+                                            this.cells[rowNum * this.width + i] = Integer.parseInt(numbers[i]);
+                                        } else
+                                        {
+                                            this.blank = rowNum * this.width + i;
                                         }
                                     }
                                     ++rowNum;
                                 }
                                 next = input.next();
                             }
+                            recount();
                             break;
                         case "turns":
-                            this.turns = new ArrayDeque();
+                            TurnLoader loader = new TurnLoader();
                             next = input.next();
                             while (!next.equals("/turns"))
                             {
-                                ArrayDeque<Move> moves = null;
                                 if (next.equals("turn"))
                                 {
-                                    moves = new ArrayDeque();
+                                    loader.turn();
                                     while (!next.equals("/turn"))
                                     {
-                                        Move move = null;
                                         if (next.equals("move"))
                                         {
                                             int x1 = -1;
@@ -495,26 +1628,19 @@ public class Board implements Serializable
                                                         y2 = Integer.parseInt(input.next());
                                                         break;
                                                 }
-                                                if (x1 != -1 && y1 != -1 && x2 != -1 && y2 != -1)
-                                                {
-                                                    move = new Move(x1, y1, x2, y2);
-                                                }
                                                 next = input.next();
-                                                if (move != null)
-                                                {
-                                                    moves.addLast(move);
-                                                }
+                                            }
+                                            if (x1 != -1 && y1 != -1 && x2 != -1 && y2 != -1)
+                                            {
+                                                loader.move(y1 * this.width + x1, y2 * this.width + x2);
                                             }
                                         }
                                         next = input.next();
                                     }
                                 }
-                                if (moves != null)
-                                {
-                                    this.turns.addLast(moves);
-                                }
                                 next = input.next();
                             }
+                            loader.finish();
                             break;
                     }
                     next = input.next();
@@ -523,76 +1649,554 @@ public class Board implements Serializable
         }
     }
 
+    /**
+     * Writes this board in the binary .sld format. After the magic number and
+     * version come the width and height as varints, then the tiles row by
+     * row, packed into just enough bits for the largest tile, then the turns.
+     * The turns are written in the same order as toXML() with a varint count
+     * of turns, and for each turn a varint count of moves. Each move is two
+     * cell indices written as zigzag varint deltas. The first is relative to
+     * the first cell of the move before, the second to the first, so the
+     * moves of a slide take a byte each on boards up to 63 wide.
+     *
+     * @param out Where the board is written
+     * @throws IOException If out can't be written to
+     */
+    public void toBinary(DataOutput out) throws IOException
+    {
+        out.writeInt(BINARY_MAGIC);
+        out.writeByte(BINARY_VERSION);
+        writeVarint(out, this.width);
+        writeVarint(out, this.height);
+        writeTiles(out);
+        writeTurns(out);
+    }
+
+    /**
+     * Replaces this board with one written by toBinary().
+     *
+     * @param in Where the board is read from
+     * @throws IOException If in can't be read from or doesn't hold a binary
+     * board
+     */
+    public void fromBinary(DataInput in) throws IOException
+    {
+        if (in.readInt() != BINARY_MAGIC)
+        {
+            throw new IOException("Not a binary board");
+        }
+        int version = in.readUnsignedByte();
+        if (version > BINARY_VERSION)
+        {
+            throw new IOException("Binary board version " + version + " is newer than this program");
+        }
+        int newWidth = readVarint(in);
+        int newHeight = readVarint(in);
+        readTiles(in, newWidth, newHeight);
+        readTurns(in);
+    }
+
+    /**
+     * Writes the tiles the way toBinary() does, without the dimensions. The
+     * tiles of every board of one size take the same number of bytes.
+     *
+     * @param out Where the tiles are written
+     * @throws IOException If out can't be written to
+     */
+    public void writeTiles(DataOutput out) throws IOException
+    {
+        int bits = bitsPerCell(this.cells.length);
+        long buffer = 0;
+        int buffered = 0;
+        for (int tile : this.cells)
+        {
+            buffer = buffer << bits | tile;
+            buffered += bits;
+            while (buffered >= 8)
+            {
+                buffered -= 8;
+                out.writeByte((int) (buffer >>> buffered));
+            }
+        }
+        if (buffered > 0)
+        {
+            out.writeByte((int) (buffer << (8 - buffered)));
+        }
+    }
+
+    /**
+     * Replaces the tiles of this board with ones written by writeTiles() and
+     * clears turns.
+     *
+     * @param in Where the tiles are read from
+     * @param newWidth The width of the board that was written
+     * @param newHeight The height of the board that was written
+     * @throws IOException If in can't be read from or doesn't hold every tile
+     * of a board of that size once
+     */
+    public void readTiles(DataInput in, int newWidth, int newHeight) throws IOException
+    {
+        if (newWidth < 1 || newHeight < 1 || (long) newWidth * newHeight > Integer.MAX_VALUE - 8)
+        {
+            throw new IOException("Bad board dimensions " + newWidth + "x" + newHeight);
+        }
+        int[] newCells = new int[newWidth * newHeight];
+        int bits = bitsPerCell(newCells.length);
+        int mask = (1 << bits) - 1;
+        int newBlank = -1;
+        boolean[] seen = new boolean[newCells.length];
+        long buffer = 0;
+        int buffered = 0;
+        for (int k = 0; k < newCells.length; ++k)
+        {
+            while (buffered < bits)
+            {
+                buffer = buffer << 8 | in.readUnsignedByte();
+                buffered += 8;
+            }
+            buffered -= bits;
+            newCells[k] = (int) (buffer >>> buffered) & mask;
+            if (newCells[k] >= newCells.length)
+            {
+                throw new IOException("Bad tile " + newCells[k]);
+            }
+            if (seen[newCells[k]])
+            {
+                throw new IOException("Duplicate tile " + newCells[k]);
+            }
+            seen[newCells[k]] = true;
+            if (newCells[k] == BLANK)
+            {
+                newBlank = k;
+            }
+        }
+        if (newBlank < 0)
+        {
+            throw new IOException("No blank on the board");
+        }
+        this.width = newWidth;
+        this.height = newHeight;
+        this.cells = newCells;
+        this.blank = newBlank;
+        this.history.clear();
+        recount();
+    }
+
+    /**
+     * Writes turns the way toBinary() does.
+     *
+     * @param out Where the turns are written
+     * @throws IOException If out can't be written to
+     */
+    public void writeTurns(DataOutput out) throws IOException
+    {
+        writeVarint(out, this.history.turns());
+        forEachMove(new TurnVisitor()
+        {
+            private int previous = 0;
+
+            @Override
+            public void turn(int moves) throws IOException
+            {
+                writeVarint(out, moves);
+            }
+
+            @Override
+            public void move(int a, int b) throws IOException
+            {
+                writeVarint(out, zigzag(a - this.previous));
+                writeVarint(out, zigzag(b - a));
+                this.previous = a;
+            }
+        });
+    }
+
+    /**
+     * Replaces turns with ones written by writeTurns() for a board of this
+     * size.
+     *
+     * @param in Where the turns are read from
+     * @throws IOException If in can't be read from or a move doesn't slide
+     * the blank
+     */
+    public void readTurns(DataInput in) throws IOException
+    {
+        TurnLoader loader = new TurnLoader();
+        int turnCount = readVarint(in);
+        int previous = 0;
+        for (int t = 0; t < turnCount; ++t)
+        {
+            loader.turn();
+            int moveCount = readVarint(in);
+            for (int m = 0; m < moveCount; ++m)
+            {
+                int a = previous + unzigzag(readVarint(in));
+                int b = a + unzigzag(readVarint(in));
+                try
+                {
+                    loader.move(a, b);
+                } catch (IllegalArgumentException e)
+                {
+                    throw new IOException(e.getMessage());
+                }
+                previous = a;
+            }
+        }
+        loader.finish();
+    }
+
+    /**
+     * Gets the number of bits needed for the largest tile on a board.
+     *
+     * @param length The number of cells on the board
+     * @return The number of bits each cell is packed into by toBinary()
+     */
+    private static int bitsPerCell(int length)
+    {
+        return 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Writes a non-negative int 7 bits at a time, lowest first, with the high
+     * bit of each byte set if more follow.
+     *
+     * @param out Where it is written
+     * @param value The value
+     * @throws IOException If out can't be written to
+     */
+    private static void writeVarint(DataOutput out, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int written by writeVarint().
+     *
+     * @param in Where it is read from
+     * @return The value
+     * @throws IOException If in can't be read from or the varint is too long
+     */
+    private static int readVarint(DataInput in) throws IOException
+    {
+        int rtnval = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            rtnval |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return rtnval;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+
+    /**
+     * Maps small negative and positive numbers to small non-negative ones, so
+     * that they take one byte as a varint.
+     *
+     * @param value The value
+     * @return 2 * value for positive values, -2 * value - 1 for negative ones
+     */
+    private static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Undoes zigzag().
+     *
+     * @param value The zigzagged value
+     * @return The original value
+     */
+    private static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     /**
      * Checks the solvability of the board using
      * <a href="https://www.cs.bham.ac.uk/~mdr/teaching/modules04/java2/TilesSolvability.html">this
-     * method.</a>
+     * method.</a> Only the parity of the inversion count matters, so instead
+     * of counting inversions pair by pair this finds the parity of the
+     * permutation from its cycles, which takes one pass over the cells.
+     *
+     * A board one cell wide or high doesn't follow that rule: the blank can
+     * only slide along the line, so the tiles can never change order and the
+     * board is only solvable if they are already in order.
      *
      * @return True if tiles is solvable, false if not
      */
-    private boolean checkSolvable()
+    public boolean checkSolvable()
     {
-        int inversionCount = 0;
-        //blankRow is the row with the blank on it
-        int blankRow = -1;
-        for (int j = 0; j < this.tiles[0].length; ++j)
+        boolean rtnbool;
+        if (this.width == 1 || this.height == 1)
+        {
+            rtnbool = tilesInOrder();
+        } else
+        {
+            rtnbool = cycleParitySolvable();
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Checks that the tiles, skipping the blank, are in their solved order.
+     *
+     * @return True if every tile comes after the ones smaller than it
+     */
+    private boolean tilesInOrder()
+    {
+        boolean rtnbool = true;
+        int next = 1;
+        for (int k = 0; k < this.cells.length && rtnbool; ++k)
         {
-            for (int i = 0; i < this.tiles.length; ++i)
+            if (this.cells[k] != BLANK)
             {
-                if (this.tiles[i][j] != null)
-                {
-                    //This loop checks the rest of the row tiles[i][j] is on
-                    for (int m = i + 1; m < this.tiles.length; ++m)
-                    {
-                        if (this.tiles[m][j] != null && this.tiles[i][j].compareTo(this.tiles[m][j]) > 0)
-                        {
-                            ++inversionCount;
-                        }
-                    }
-                    //These loops checks all the other rows
-                    for (int n = j + 1; n < this.tiles[0].length; ++n)
-                    {
-                        for (int m = 0; m < this.tiles.length; ++m)
-                        {
-                            if (this.tiles[m][n] != null && this.tiles[i][j].compareTo(this.tiles[m][n]) > 0)
-                            {
-                                ++inversionCount;
-                            }
-                        }
-                    }
-                } else
+                rtnbool = this.cells[k] == next;
+                ++next;
+            }
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Checks the solvability of a board at least 2x2 from the parity of its
+     * permutation and the row of its blank.
+     *
+     * @return True if tiles is solvable, false if not
+     */
+    private boolean cycleParitySolvable()
+    {
+        int length = this.cells.length;
+        boolean[] visited = new boolean[length];
+        int cycles = 0;
+        for (int k = 0; k < length; ++k)
+        {
+            if (!visited[k])
+            {
+                ++cycles;
+                for (int m = k; !visited[m]; m = home(this.cells[m]))
                 {
-                    blankRow = j;
+                    visited[m] = true;
                 }
             }
         }
+        /* A cycle of n cells takes n - 1 swaps to sort, so the permutation of
+        all the cells has the parity of length - cycles. The inversions of the
+        tiles alone are the same as with the blank moved to the last cell,
+        which takes another length - 1 - blank swaps. */
+        int inversionParity = (length - cycles + length - 1 - this.blank) % 2;
+        //blankRow is the row with the blank on it
+        int blankRow = this.blank / this.width;
         boolean rtnbool;
         /* The row of the blank counting from the bottom starts the count at 1,
         meaning if the blank was on the bottom row, its on the "first" row
         from the bottom. That's okay because the length of an array is 1 more
         than its last index */
-        if (this.tiles.length % 2 == 0 && (this.tiles[0].length - blankRow) % 2 == 0)
+        if (this.width % 2 == 0 && (this.height - blankRow) % 2 == 0)
         {
-            rtnbool = inversionCount % 2 == 1;
+            rtnbool = inversionParity == 1;
         } else
         {
-            rtnbool = inversionCount % 2 == 0;
+            rtnbool = inversionParity == 0;
         }
         return rtnbool;
     }
 
     /**
-     * Checks if turns is empty.
+     * Gets the index of the cell a tile belongs in when the board is solved.
+     *
+     * @param tile The tile, or BLANK
+     * @return The index of its cell in the solved state
+     */
+    private int home(int tile)
+    {
+        return (tile == BLANK ? this.cells.length : tile) - 1;
+    }
+
+    /**
+     * Checks if there are any turns to undo.
      *
-     * @return True if turns is empty, false if not.
+     * @return True if there are none, false if not.
      */
     public boolean movesEmpty()
     {
-        return this.turns.isEmpty();
+        return this.history.isEmpty();
     }
 
+    /**
+     * Builds a boxed copy of the board, indexed [x][y], with null for the
+     * empty tile. A new array is made on every call, so anything that reads
+     * the board repeatedly should use getTile() instead.
+     *
+     * @return A copy of the tiles in the original Integer[][] layout
+     */
     public Integer[][] getTiles()
     {
-        return this.tiles;
+        Integer[][] rtnval = new Integer[this.width][this.height];
+        for (int k = 0; k < this.cells.length; ++k)
+        {
+            if (this.cells[k] != BLANK)
+            {
+                rtnval[k % this.width][k / this.width] = this.cells[k];
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Returns the tile at a position without allocating anything.
+     *
+     * @param x The horizontal index of the tile
+     * @param y The vertical index of the tile
+     * @return The number of the tile, or BLANK for the empty space
+     */
+    public int getTile(int x, int y)
+    {
+        return this.cells[y * this.width + x];
+    }
+
+    /**
+     * Returns where the empty tile is as an index into the board read left to
+     * right and top to bottom, i.e. getBlankY() * getWidth() + getBlankX().
+     *
+     * @return The index of the empty tile
+     */
+    public int getBlankPosition()
+    {
+        return this.blank;
+    }
+
+    /**
+     * @return The horizontal index of the empty tile
+     */
+    public int getBlankX()
+    {
+        return this.blank % this.width;
+    }
+
+    /**
+     * @return The vertical index of the empty tile
+     */
+    public int getBlankY()
+    {
+        return this.blank / this.width;
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * Writes the board in the original .sld layout, converting cells back
+     * into an Integer[][].
+     *
+     * @param out The stream being written to
+     * @throws IOException If the stream can't be written to
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("tiles", getTiles());
+        ArrayDeque<ArrayDeque<Move>> turns = new ArrayDeque<>();
+        forEachMove(new TurnVisitor()
+        {
+            @Override
+            public void turn(int moves)
+            {
+                turns.addLast(new ArrayDeque<>());
+            }
+
+            @Override
+            public void move(int a, int b)
+            {
+                turns.getLast().addLast(new Move(a % Board.this.width, a / Board.this.width,
+                        b % Board.this.width, b / Board.this.width));
+            }
+        });
+        fields.put("turns", turns);
+        out.writeFields();
+    }
+
+    /**
+     * Reads a board saved in the .sld layout and packs its Integer[][] into
+     * cells.
+     *
+     * @param in The stream being read from
+     * @throws IOException If the stream can't be read from
+     * @throws ClassNotFoundException If a class in the stream can't be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream.GetField fields = in.readFields();
+        Integer[][] tiles = (Integer[][]) fields.get("tiles", null);
+        this.width = tiles.length;
+        this.height = tiles[0].length;
+        this.cells = new int[this.width * this.height];
+        for (int i = 0; i < this.width; ++i)
+        {
+            for (int j = 0; j < this.height; ++j)
+            {
+                if (tiles[i][j] != null)
+                {
+                    this.cells[j * this.width + i] = tiles[i][j];
+                } else
+                {
+                    this.blank = j * this.width + i;
+                }
+            }
+        }
+        recount();
+        this.history = new History(DEFAULT_HISTORY_LIMIT);
+        TurnLoader loader = new TurnLoader();
+        //The stream's generic types can't be trusted, so every element is checked
+        for (Object moves : deque(fields.get("turns", null)))
+        {
+            loader.turn();
+            for (Object element : deque(moves))
+            {
+                if (!(element instanceof Move))
+                {
+                    throw new InvalidObjectException("A turn holds a " + element.getClass().getName());
+                }
+                Move move = (Move) element;
+                try
+                {
+                    loader.move(move.getY1() * this.width + move.getX1(), move.getY2() * this.width + move.getX2());
+                } catch (IllegalArgumentException e)
+                {
+                    throw new InvalidObjectException(e.getMessage());
+                }
+            }
+        }
+        loader.finish();
+    }
+
+    /**
+     * Checks that a value read from an old stream is a deque.
+     *
+     * @param value The value
+     * @return The value as a deque
+     * @throws InvalidObjectException If it isn't one
+     */
+    private static ArrayDeque<?> deque(Object value) throws InvalidObjectException
+    {
+        if (!(value instanceof ArrayDeque))
+        {
+            throw new InvalidObjectException("Expected turns but found " + value);
+        }
+        return (ArrayDeque<?>) value;
     }
 }
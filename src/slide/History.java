@@ -0,0 +1,526 @@
+package slide;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * The undo history of a Board, kept as ints in a ring buffer instead of a
+ * Move object per step. Every turn the player takes slides the blank some
+ * number of cells in one direction, so a turn is stored as one run: the
+ * direction in the low 2 bits and the length above them. A turn loaded from
+ * a file that changes direction takes one run per direction, with the
+ * CONTINUES bit set on every run but its first so they are undone together.
+ * When the buffer reaches its limit the oldest turns are dropped.
+ *
+ * Undone runs stay in the buffer after the ones that can be undone so they
+ * can be redone, until a new turn is pushed. Turns are numbered from the
+ * start of the history, counting ones that have been dropped, and the board
+ * can leave packed copies of itself at some turns as checkpoints, so that
+ * seeking doesn't have to replay the whole history.
+ *
+ * @author Griffin
+ */
+final class History
+{
+
+    /**
+     * The directions the blank can move in, the same as the solver uses.
+     * Adding 2 (mod 4) gives the opposite direction.
+     */
+    static final int UP = 0, RIGHT = 1, DOWN = 2, LEFT = 3;
+
+    /**
+     * Set on a run that belongs to the same turn as the run before it.
+     */
+    private static final int CONTINUES = 1 << 2;
+
+    /**
+     * The longest run one entry can hold. Longer runs are split.
+     */
+    private static final int MAX_LENGTH = (1 << 29) - 1;
+
+    /**
+     * The runs, oldest first starting at head and wrapping around. The length
+     * is always a power of two.
+     */
+    private int[] entries;
+
+    /**
+     * The index in entries of the oldest run.
+     */
+    private int head;
+
+    /**
+     * How many runs can be undone.
+     */
+    private int size;
+
+    /**
+     * How many runs after those can be redone.
+     */
+    private int redo;
+
+    /**
+     * How many turns can be undone.
+     */
+    private int turns;
+
+    /**
+     * How many turns can be redone.
+     */
+    private int redoTurns;
+
+    /**
+     * How many turns and runs have been dropped off the start.
+     */
+    private long droppedTurns, droppedRuns;
+
+    /**
+     * Packed boards by the turn they were taken at.
+     */
+    private final TreeMap<Long, Checkpoint> checkpoints;
+
+    /**
+     * The turn of the newest checkpoint, or -1 if there are none, so that
+     * checking whether a checkpoint is due doesn't search the map.
+     */
+    private long newestCheckpoint;
+
+    /**
+     * The most runs that are kept.
+     */
+    private int limit;
+
+    /**
+     * A packed copy of the board after some turn.
+     */
+    static final class Checkpoint
+    {
+
+        /**
+         * The number of runs from the start of the history to the turn.
+         */
+        final long run;
+
+        /**
+         * The board, packed by Board.toKey().
+         */
+        final long[] key;
+
+        Checkpoint(long run, long[] key)
+        {
+            this.run = run;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Makes an empty history.
+     *
+     * @param limit The most runs that are kept
+     */
+    History(int limit)
+    {
+        this.checkpoints = new TreeMap<>();
+        this.newestCheckpoint = -1;
+        this.entries = new int[16];
+        setLimit(limit);
+    }
+
+    /**
+     * Records a new turn of one run, throwing away anything that could be
+     * redone.
+     *
+     * @param direction The direction the blank moved in
+     * @param length How many cells it moved
+     * @return True if there were turns that could be redone
+     */
+    boolean push(int direction, int length)
+    {
+        boolean rtnbool = truncate();
+        add(direction, length, false);
+        return rtnbool;
+    }
+
+    /**
+     * Adds a run to the newest turn, or starts a turn if there isn't one,
+     * throwing away anything that could be redone. Runs are merged if the
+     * newest run goes in the same direction.
+     *
+     * @param direction The direction the blank moved in
+     * @param length How many cells it moved
+     */
+    void extend(int direction, int length)
+    {
+        truncate();
+        if (this.size > 0)
+        {
+            int newest = this.entries[index(this.size - 1)];
+            if (direction(newest) == direction && length(newest) + length <= MAX_LENGTH)
+            {
+                this.entries[index(this.size - 1)] = newest + (length << 3);
+                return;
+            }
+        }
+        add(direction, length, true);
+    }
+
+    /**
+     * Throws away the runs that could be redone and the checkpoints after
+     * the current turn.
+     *
+     * @return True if there was anything to throw away
+     */
+    private boolean truncate()
+    {
+        boolean rtnbool = this.redo > 0;
+        if (rtnbool)
+        {
+            this.redo = 0;
+            this.redoTurns = 0;
+            this.checkpoints.tailMap(position(), false).clear();
+            this.newestCheckpoint = this.checkpoints.isEmpty() ? -1 : this.checkpoints.lastKey();
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Appends runs, splitting ones that are too long for one entry.
+     *
+     * @param direction The direction the blank moved in
+     * @param length How many cells it moved
+     * @param continues True if the run belongs to the newest turn
+     */
+    private void add(int direction, int length, boolean continues)
+    {
+        while (length > 0)
+        {
+            int part = Math.min(length, MAX_LENGTH);
+            if (this.size == this.limit)
+            {
+                dropOldest();
+            }
+            //The turn being continued can have just been dropped
+            continues &= this.size > 0;
+            if (this.size == this.entries.length)
+            {
+                grow();
+            }
+            this.entries[index(this.size)] = part << 3 | (continues ? CONTINUES : 0) | direction;
+            ++this.size;
+            if (!continues)
+            {
+                ++this.turns;
+            }
+            length -= part;
+            continues = true;
+        }
+    }
+
+    /**
+     * Moves the newest run that can be undone to the runs that can be redone.
+     *
+     * @return The run
+     * @throws NoSuchElementException If there is nothing to undo
+     */
+    int pop()
+    {
+        if (this.size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        --this.size;
+        ++this.redo;
+        int rtnval = this.entries[index(this.size)];
+        if (!continues(rtnval))
+        {
+            --this.turns;
+            ++this.redoTurns;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Moves the oldest run that can be redone back to the runs that can be
+     * undone.
+     *
+     * @return The run
+     * @throws NoSuchElementException If there is nothing to redo
+     */
+    int unpop()
+    {
+        if (this.redo == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        int rtnval = this.entries[index(this.size)];
+        ++this.size;
+        --this.redo;
+        if (!continues(rtnval))
+        {
+            ++this.turns;
+            --this.redoTurns;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Checks if the next run to redo belongs to the turn being redone.
+     *
+     * @return True if there is a next run and it continues a turn
+     */
+    boolean redoContinues()
+    {
+        return this.redo > 0 && continues(this.entries[index(this.size)]);
+    }
+
+    /**
+     * Gets a run that can be undone without removing it.
+     *
+     * @param age 0 for the newest run, 1 for the one before it, and so on
+     * @return The run
+     */
+    int peek(int age)
+    {
+        return this.entries[index(this.size - 1 - age)];
+    }
+
+    /**
+     * Drops the oldest turn and the checkpoints before it.
+     */
+    private void dropOldest()
+    {
+        do
+        {
+            this.head = (this.head + 1) & (this.entries.length - 1);
+            --this.size;
+            ++this.droppedRuns;
+        } while (this.size > 0 && continues(this.entries[this.head]));
+        --this.turns;
+        ++this.droppedTurns;
+        this.checkpoints.headMap(this.droppedTurns, false).clear();
+        if (this.checkpoints.isEmpty())
+        {
+            this.newestCheckpoint = -1;
+        }
+    }
+
+    /**
+     * Doubles the buffer, unwrapping the runs to the start of it.
+     */
+    private void grow()
+    {
+        int[] bigger = new int[this.entries.length * 2];
+        for (int i = 0; i < this.size + this.redo; ++i)
+        {
+            bigger[i] = this.entries[index(i)];
+        }
+        this.entries = bigger;
+        this.head = 0;
+    }
+
+    /**
+     * Gets where a run is stored.
+     *
+     * @param i 0 for the oldest run, 1 for the one after it, and so on
+     * @return The index in entries
+     */
+    private int index(int i)
+    {
+        return (this.head + i) & (this.entries.length - 1);
+    }
+
+    /**
+     * Removes every turn and checkpoint.
+     */
+    void clear()
+    {
+        this.head = 0;
+        this.size = 0;
+        this.redo = 0;
+        this.turns = 0;
+        this.redoTurns = 0;
+        this.droppedTurns = 0;
+        this.droppedRuns = 0;
+        this.checkpoints.clear();
+        this.newestCheckpoint = -1;
+    }
+
+    /**
+     * Leaves a checkpoint at the current turn.
+     *
+     * @param key The board, packed by Board.toKey()
+     */
+    void checkpoint(long[] key)
+    {
+        this.checkpoints.put(position(), new Checkpoint(this.droppedRuns + this.size, key));
+        this.newestCheckpoint = Math.max(this.newestCheckpoint, position());
+    }
+
+    /**
+     * Leaves a checkpoint at an earlier turn.
+     *
+     * @param turn The turn, counted from the oldest turn still kept
+     * @param runs The number of runs from the oldest run still kept to it
+     * @param key The board at that turn, packed by Board.toKey()
+     */
+    void checkpoint(int turn, int runs, long[] key)
+    {
+        this.checkpoints.put(this.droppedTurns + turn, new Checkpoint(this.droppedRuns + runs, key));
+        this.newestCheckpoint = Math.max(this.newestCheckpoint, this.droppedTurns + turn);
+    }
+
+    /**
+     * @return How many turns the current turn is after the last checkpoint
+     * before it, or after the oldest turn still kept if there is none. After
+     * a new turn the newest checkpoint is always before it, so the map is
+     * only searched when turns have been undone past it.
+     */
+    long sinceCheckpoint()
+    {
+        long last = this.newestCheckpoint;
+        if (last > position())
+        {
+            Long floor = this.checkpoints.floorKey(position());
+            last = floor != null ? floor : -1;
+        }
+        return position() - Math.max(last, this.droppedTurns);
+    }
+
+    /**
+     * Finds the checkpoint closest to a turn.
+     *
+     * @param turn The turn, counted from the start of the history
+     * @return The turn of the closest checkpoint and the checkpoint, or null
+     * if there are none
+     */
+    Map.Entry<Long, Checkpoint> nearestCheckpoint(long turn)
+    {
+        Map.Entry<Long, Checkpoint> rtnval = this.checkpoints.floorEntry(turn);
+        Map.Entry<Long, Checkpoint> after = this.checkpoints.ceilingEntry(turn);
+        if (rtnval == null || after != null && after.getKey() - turn < turn - rtnval.getKey())
+        {
+            rtnval = after;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Jumps to a checkpoint without replaying anything. The board has to be
+     * restored from the checkpoint's key at the same time.
+     *
+     * @param turn The turn of the checkpoint
+     * @param checkpoint The checkpoint
+     */
+    void jump(long turn, Checkpoint checkpoint)
+    {
+        int total = this.size + this.redo;
+        int totalTurns = this.turns + this.redoTurns;
+        this.size = (int) (checkpoint.run - this.droppedRuns);
+        this.redo = total - this.size;
+        this.turns = (int) (turn - this.droppedTurns);
+        this.redoTurns = totalTurns - this.turns;
+    }
+
+    /**
+     * Sets the most runs that are kept, throwing away what can be redone and
+     * then dropping the oldest turns if there are more than that already.
+     *
+     * @param limit The limit, at least 1
+     */
+    void setLimit(int limit)
+    {
+        if (limit < 1)
+        {
+            throw new IllegalArgumentException("The history limit must be at least 1");
+        }
+        this.limit = limit;
+        if (this.size + this.redo > limit)
+        {
+            truncate();
+        }
+        while (this.size > limit)
+        {
+            dropOldest();
+        }
+    }
+
+    int getLimit()
+    {
+        return this.limit;
+    }
+
+    /**
+     * @return The current turn, counted from the start of the history
+     * including dropped turns
+     */
+    long position()
+    {
+        return this.droppedTurns + this.turns;
+    }
+
+    /**
+     * @return How many turns have been dropped off the start
+     */
+    long dropped()
+    {
+        return this.droppedTurns;
+    }
+
+    /**
+     * @return How many runs can be undone
+     */
+    int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return How many turns can be undone
+     */
+    int turns()
+    {
+        return this.turns;
+    }
+
+    /**
+     * @return How many turns can be redone
+     */
+    int redoTurns()
+    {
+        return this.redoTurns;
+    }
+
+    boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @param run A run
+     * @return The direction the blank moved in
+     */
+    static int direction(int run)
+    {
+        return run & 3;
+    }
+
+    /**
+     * @param run A run
+     * @return How many cells the blank moved
+     */
+    static int length(int run)
+    {
+        return run >>> 3;
+    }
+
+    /**
+     * @param run A run
+     * @return True if the run belongs to the same turn as the run before it
+     */
+    static boolean continues(int run)
+    {
+        return (run & CONTINUES) != 0;
+    }
+}
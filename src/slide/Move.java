@@ -7,11 +7,23 @@ import java.io.Serializable;
  * the two tiles that switched places to form the move. Because of this, if one
  * move object is executed twice, the board stays the same.
  *
+ * Code that makes a lot of moves should use packed moves instead, which are
+ * plain ints: the index of the blank shifted left 2 bits, with the direction
+ * the blank moves in (Board.UP, RIGHT, DOWN or LEFT) in the low 2 bits. The
+ * static methods here make, read and convert them, and Board.applyMove()
+ * plays one. Move objects are still what the .sld and XML files hold.
+ *
  * @author Griffin
  */
 public class Move implements Serializable
 {
 
+    /**
+     * Pinned to the value the JVM computed for the original class, so .sld
+     * files saved by older builds still load.
+     */
+    private static final long serialVersionUID = 1223073573711968059L;
+
     /**
      * X1 and Y1 are the coordinates of the first tile, and X2 and Y2 are the
      * coordinates of the second tile.
@@ -52,4 +64,138 @@ public class Move implements Serializable
     {
         return Y2;
     }
+
+    /**
+     * Packs a move.
+     *
+     * @param blank The index of the blank before the move
+     * @param direction The direction the blank moves in
+     * @return The packed move
+     */
+    public static int pack(int blank, int direction)
+    {
+        return blank << 2 | direction;
+    }
+
+    /**
+     * Packs the move that slides a tile into the blank.
+     *
+     * @param blank The index of the blank
+     * @param tile The index of the tile, which must be next to the blank
+     * @param width The width of the board
+     * @return The packed move
+     */
+    public static int pack(int blank, int tile, int width)
+    {
+        int direction;
+        if (tile == blank - width)
+        {
+            direction = Board.UP;
+        } else if (tile == blank + width)
+        {
+            direction = Board.DOWN;
+        } else if (tile == blank + 1)
+        {
+            direction = Board.RIGHT;
+        } else
+        {
+            direction = Board.LEFT;
+        }
+        return pack(blank, direction);
+    }
+
+    /**
+     * @param move A packed move
+     * @return The index of the blank before the move
+     */
+    public static int blank(int move)
+    {
+        return move >>> 2;
+    }
+
+    /**
+     * @param move A packed move
+     * @return The direction the blank moves in
+     */
+    public static int direction(int move)
+    {
+        return move & 3;
+    }
+
+    /**
+     * Gets the tile a packed move slides, which is where the blank ends up.
+     *
+     * @param move A packed move
+     * @param width The width of the board
+     * @return The index of the tile
+     */
+    public static int target(int move, int width)
+    {
+        int rtnval;
+        switch (direction(move))
+        {
+            case Board.UP:
+                rtnval = blank(move) - width;
+                break;
+            case Board.RIGHT:
+                rtnval = blank(move) + 1;
+                break;
+            case Board.DOWN:
+                rtnval = blank(move) + width;
+                break;
+            default:
+                rtnval = blank(move) - 1;
+                break;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Unpacks a move into a Move the way Board.queryTile() writes one: the
+     * tile that slid first, then the blank it slid into.
+     *
+     * @param move A packed move
+     * @param width The width of the board
+     * @return The Move
+     */
+    public static Move unpack(int move, int width)
+    {
+        int tile = target(move, width);
+        int blank = blank(move);
+        return new Move(tile % width, tile / width, blank % width, blank / width);
+    }
+
+    /**
+     * Packs this move, which must swap two neighbouring cells. Either cell
+     * can be the blank, so it has to be given.
+     *
+     * @param width The width of the board
+     * @param blankFirst True if (x1, y1) is the blank, false if (x2, y2) is
+     * @return The packed move
+     * @throws IllegalArgumentException If the cells aren't neighbours
+     */
+    public int pack(int width, boolean blankFirst)
+    {
+        int dx = blankFirst ? X2 - X1 : X1 - X2;
+        int dy = blankFirst ? Y2 - Y1 : Y1 - Y2;
+        int direction;
+        if (dx == 0 && dy == -1)
+        {
+            direction = Board.UP;
+        } else if (dx == 1 && dy == 0)
+        {
+            direction = Board.RIGHT;
+        } else if (dx == 0 && dy == 1)
+        {
+            direction = Board.DOWN;
+        } else if (dx == -1 && dy == 0)
+        {
+            direction = Board.LEFT;
+        } else
+        {
+            throw new IllegalArgumentException("(" + X1 + ", " + Y1 + ") and (" + X2 + ", " + Y2
+                    + ") aren't neighbours");
+        }
+        return blankFirst ? pack(Y1 * width + X1, direction) : pack(Y2 * width + X2, direction);
+    }
 }
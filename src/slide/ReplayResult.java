@@ -0,0 +1,90 @@
+package slide;
+
+/**
+ * The outcome of playing a sequence of moves with Board.replay(). The board
+ * itself is left where the replay stopped.
+ *
+ * @author Griffin
+ */
+public class ReplayResult
+{
+
+    /**
+     * How many moves were made.
+     */
+    private final int moves;
+
+    /**
+     * The index of the first illegal move, or -1 if every move was made.
+     */
+    private final int illegal;
+
+    /**
+     * Whether the board was solved after the last move made.
+     */
+    private final boolean solved;
+
+    /**
+     * The Zobrist hash of the board after the last move made.
+     */
+    private final long hash;
+
+    ReplayResult(int moves, int illegal, boolean solved, long hash)
+    {
+        this.moves = moves;
+        this.illegal = illegal;
+        this.solved = solved;
+        this.hash = hash;
+    }
+
+    /**
+     * @return How many moves were made before the end of the sequence or
+     * the first illegal move
+     */
+    public int getMoves()
+    {
+        return this.moves;
+    }
+
+    /**
+     * @return The index in the sequence of the first illegal move, or -1 if
+     * every move was made
+     */
+    public int getIllegalIndex()
+    {
+        return this.illegal;
+    }
+
+    /**
+     * @return True if every move in the sequence was made
+     */
+    public boolean isComplete()
+    {
+        return this.illegal < 0;
+    }
+
+    public boolean isSolved()
+    {
+        return this.solved;
+    }
+
+    /**
+     * @return The Zobrist hash of the board where the replay stopped, the
+     * same as Board.zobristHash()
+     */
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        String rtnstr = this.moves + " moves, " + (this.solved ? "solved" : "not solved");
+        if (!isComplete())
+        {
+            rtnstr += ", illegal move at " + this.illegal;
+        }
+        return rtnstr;
+    }
+}
@@ -0,0 +1,207 @@
+package slide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A set of pattern databases over disjoint groups of tiles on one board size,
+ * whose costs add up to an admissible heuristic. Tiles that aren't in any
+ * pattern are counted by their Manhattan distance. This is a HeuristicFactory,
+ * so it plugs straight into IDAStarSolver, and the databases are only read,
+ * so one instance can serve every solver thread.
+ *
+ * Running this class builds the default databases for a board size and
+ * saves them, e.g. java slide.solver.AdditivePatternDatabase 4 4 pdb/
+ *
+ * @author Griffin
+ */
+public class AdditivePatternDatabase implements HeuristicFactory
+{
+
+    /**
+     * The width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * The databases.
+     */
+    private final PatternDatabase[] databases;
+
+    /**
+     * Which database each tile is in, or -1 for tiles that aren't in one.
+     */
+    private final int[] owner;
+
+    /**
+     * Groups databases together. They must be for the same board size and
+     * their patterns must not share tiles.
+     *
+     * @param databases The databases
+     * @throws IllegalArgumentException If the databases don't fit together
+     */
+    public AdditivePatternDatabase(PatternDatabase... databases)
+    {
+        if (databases.length == 0)
+        {
+            throw new IllegalArgumentException("At least one pattern database is needed");
+        }
+        this.width = databases[0].getWidth();
+        this.height = databases[0].getHeight();
+        this.databases = databases.clone();
+        this.owner = new int[this.width * this.height];
+        Arrays.fill(this.owner, -1);
+        for (int d = 0; d < databases.length; ++d)
+        {
+            if (databases[d].getWidth() != this.width || databases[d].getHeight() != this.height)
+            {
+                throw new IllegalArgumentException(databases[d] + " is for a different board size");
+            }
+            for (int tile : databases[d].getTiles())
+            {
+                if (this.owner[tile] != -1)
+                {
+                    throw new IllegalArgumentException("Tile " + tile + " is in more than one pattern");
+                }
+                this.owner[tile] = d;
+            }
+        }
+    }
+
+    /**
+     * Returns the patterns used when none are given: 6-6-3 for a 4x4 and
+     * 6-6-6-6 for a 5x5. Other sizes are split into rows of tiles, at most
+     * six to a pattern.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @return The tiles of each pattern
+     */
+    public static int[][] defaultPatterns(int width, int height)
+    {
+        int[][] rtnval;
+        if (width == 4 && height == 4)
+        {
+            rtnval = new int[][]
+            {
+                {1, 5, 6, 9, 10, 13},
+                {7, 8, 11, 12, 14, 15},
+                {2, 3, 4}
+            };
+        } else if (width == 5 && height == 5)
+        {
+            rtnval = new int[][]
+            {
+                {1, 2, 3, 6, 7, 8},
+                {4, 5, 9, 10, 14, 15},
+                {11, 12, 16, 17, 21, 22},
+                {13, 18, 19, 20, 23, 24}
+            };
+        } else
+        {
+            int tiles = width * height - 1;
+            rtnval = new int[(tiles + 5) / 6][];
+            for (int p = 0; p < rtnval.length; ++p)
+            {
+                rtnval[p] = new int[Math.min(6, tiles - p * 6)];
+                for (int i = 0; i < rtnval[p].length; ++i)
+                {
+                    rtnval[p][i] = p * 6 + i + 1;
+                }
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Builds the databases for a set of patterns in memory.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param patterns The tiles of each pattern
+     * @return The combined heuristic
+     */
+    public static AdditivePatternDatabase build(int width, int height, int[]... patterns)
+    {
+        PatternDatabase[] databases = new PatternDatabase[patterns.length];
+        for (int p = 0; p < patterns.length; ++p)
+        {
+            databases[p] = PatternDatabase.build(width, height, patterns[p]);
+        }
+        return new AdditivePatternDatabase(databases);
+    }
+
+    /**
+     * Maps databases saved with PatternDatabase.save().
+     *
+     * @param files The database files
+     * @return The combined heuristic
+     * @throws IOException If a file can't be mapped
+     */
+    public static AdditivePatternDatabase load(File... files) throws IOException
+    {
+        PatternDatabase[] databases = new PatternDatabase[files.length];
+        for (int f = 0; f < files.length; ++f)
+        {
+            databases[f] = PatternDatabase.load(files[f]);
+        }
+        return new AdditivePatternDatabase(databases);
+    }
+
+    /**
+     * Saves every database to a directory as WxH-N.pdb.
+     *
+     * @param directory The directory to write to
+     * @throws IOException If a file can't be written
+     */
+    public void save(File directory) throws IOException
+    {
+        for (int d = 0; d < this.databases.length; ++d)
+        {
+            this.databases[d].save(new File(directory, this.width + "x" + this.height + "-" + d + ".pdb"));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the board isn't the size the
+     * databases were built for
+     */
+    @Override
+    public Heuristic create(int width, int height)
+    {
+        if (width != this.width || height != this.height)
+        {
+            throw new IllegalArgumentException("These pattern databases are for "
+                    + this.width + "x" + this.height + " boards, not " + width + "x" + height);
+        }
+        return new PatternDatabaseHeuristic(width, height, this.databases, this.owner);
+    }
+
+    /**
+     * Builds and saves the default databases.
+     *
+     * @param args The width, the height and the directory to save to
+     * @throws IOException If a file can't be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3)
+        {
+            System.out.println("Usage: AdditivePatternDatabase <width> <height> <directory>");
+            return;
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        File directory = new File(args[2]);
+        directory.mkdirs();
+        int[][] patterns = defaultPatterns(width, height);
+        for (int p = 0; p < patterns.length; ++p)
+        {
+            long start = System.currentTimeMillis();
+            PatternDatabase database = PatternDatabase.build(width, height, patterns[p]);
+            database.save(new File(directory, width + "x" + height + "-" + p + ".pdb"));
+            System.out.println(database + " built in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package slide.solver;
+
+import java.util.List;
+import slide.Move;
+
+/**
+ * The outcome of solving one board of a batch.
+ *
+ * @author Griffin
+ */
+public class BatchResult
+{
+
+    /**
+     * Where the board came from, its file name or its index in the batch.
+     */
+    private final String name;
+
+    /**
+     * The solution, or null if the board couldn't be solved.
+     */
+    private final List<Move> moves;
+
+    /**
+     * Why the board couldn't be solved, or null if it was.
+     */
+    private final Exception error;
+
+    /**
+     * How long solving took, including loading the board.
+     */
+    private final long nanos;
+
+    BatchResult(String name, List<Move> moves, Exception error, long nanos)
+    {
+        this.name = name;
+        this.moves = moves;
+        this.error = error;
+        this.nanos = nanos;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return The solution, or null if the board couldn't be solved
+     */
+    public List<Move> getMoves()
+    {
+        return this.moves;
+    }
+
+    /**
+     * @return Why the board couldn't be solved, or null if it was
+     */
+    public Exception getError()
+    {
+        return this.error;
+    }
+
+    public long getNanos()
+    {
+        return this.nanos;
+    }
+
+    public boolean isSolved()
+    {
+        return this.error == null;
+    }
+
+    @Override
+    public String toString()
+    {
+        String rtnstr;
+        if (isSolved())
+        {
+            rtnstr = this.name + ": " + this.moves.size() + " moves in " + this.nanos / 1000000 + "ms";
+        } else
+        {
+            rtnstr = this.name + ": " + this.error.getMessage();
+        }
+        return rtnstr;
+    }
+}
@@ -0,0 +1,241 @@
+package slide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import slide.Board;
+
+/**
+ * Solves many boards at once on a ForkJoinPool. Every board is its own task,
+ * so idle workers steal boards from busy ones. The solver must be safe to
+ * share. The IDA* solvers build their own search and heuristic in each task,
+ * so the workers share nothing but the read only pattern databases. Results
+ * come back as a stream in the order they finish.
+ *
+ * Running this class solves every .sld file in a directory, e.g.
+ * java slide.solver.BatchSolver saves/ 8 pdb/
+ *
+ * @author Griffin
+ */
+public class BatchSolver
+{
+
+    /**
+     * The name of a pattern database file, WxH-N.pdb, with the size as its
+     * first group.
+     */
+    private static final Pattern DATABASE_NAME = Pattern.compile("(\\d+x\\d+)-\\d+\\.pdb");
+
+    /**
+     * The solver used for every board.
+     */
+    private final Solver solver;
+
+    /**
+     * The pool the boards are solved on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Makes a batch solver that runs on a pool. The pool isn't shut down by
+     * this class.
+     *
+     * @param solver The solver used for every board
+     * @param pool The pool to run on
+     */
+    public BatchSolver(Solver solver, ForkJoinPool pool)
+    {
+        this.solver = solver;
+        this.pool = pool;
+    }
+
+    /**
+     * Solves a list of boards. The boards are only read, but they mustn't be
+     * changed until their results have come back.
+     *
+     * @param boards The boards to solve
+     * @return The results, in the order they finish, named by index
+     */
+    public Stream<BatchResult> solve(List<Board> boards)
+    {
+        CompletionService<BatchResult> service = new ExecutorCompletionService<>(this.pool);
+        for (int i = 0; i < boards.size(); ++i)
+        {
+            Board board = boards.get(i);
+            String name = Integer.toString(i);
+            service.submit(() -> solve(name, board, System.nanoTime()));
+        }
+        return results(service, boards.size());
+    }
+
+    /**
+     * Solves boards saved as .sld files. Each file is read on the worker that
+     * solves it.
+     *
+     * @param files The files to solve
+     * @return The results, in the order they finish, named by file
+     */
+    public Stream<BatchResult> solveFiles(List<File> files)
+    {
+        CompletionService<BatchResult> service = new ExecutorCompletionService<>(this.pool);
+        for (File file : files)
+        {
+            service.submit(() ->
+            {
+                long start = System.nanoTime();
+                Board board = serializer.Deserializer.deserializeBoard(file);
+                BatchResult rtnval;
+                if (board != null)
+                {
+                    rtnval = solve(file.getName(), board, start);
+                } else
+                {
+                    rtnval = new BatchResult(file.getName(), null,
+                            new IOException("Couldn't read a board"), System.nanoTime() - start);
+                }
+                return rtnval;
+            });
+        }
+        return results(service, files.size());
+    }
+
+    /**
+     * Solves one board, catching anything that stops it from being solved.
+     *
+     * @param name The name of the board
+     * @param board The board
+     * @param start When work on the board started
+     * @return The result
+     */
+    private BatchResult solve(String name, Board board, long start)
+    {
+        BatchResult rtnval;
+        try
+        {
+            rtnval = new BatchResult(name, this.solver.solve(board), null, System.nanoTime() - start);
+        } catch (RuntimeException e)
+        {
+            rtnval = new BatchResult(name, null, e, System.nanoTime() - start);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Streams results as they are completed.
+     *
+     * @param service Where the tasks were submitted
+     * @param count How many tasks there are
+     * @return A stream that waits for each result as it is read
+     */
+    private static Stream<BatchResult> results(CompletionService<BatchResult> service, int count)
+    {
+        return IntStream.range(0, count).mapToObj(i ->
+        {
+            try
+            {
+                return service.take().get();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (ExecutionException e)
+            {
+                throw new CompletionException(e.getCause());
+            }
+        });
+    }
+
+    /**
+     * Makes a heuristic factory that uses the pattern databases in a
+     * directory (saved as WxH-N.pdb) for their board sizes and linear
+     * conflicts for every other size. Other .pdb files are skipped with a
+     * warning.
+     *
+     * @param directory The directory holding the databases
+     * @return The heuristic factory
+     * @throws IOException If a database can't be mapped
+     */
+    public static HeuristicFactory patternDatabases(File directory) throws IOException
+    {
+        Map<String, List<File>> sizes = new HashMap<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".pdb"));
+        if (files != null)
+        {
+            Arrays.sort(files);
+            for (File file : files)
+            {
+                Matcher name = DATABASE_NAME.matcher(file.getName());
+                if (name.matches())
+                {
+                    sizes.computeIfAbsent(name.group(1), s -> new ArrayList<>()).add(file);
+                } else
+                {
+                    Logger.getLogger(BatchSolver.class.getName()).log(Level.WARNING,
+                            "Skipping {0}, pattern databases are named WxH-N.pdb", file);
+                }
+            }
+        }
+        Map<String, AdditivePatternDatabase> databases = new HashMap<>();
+        for (Map.Entry<String, List<File>> entry : sizes.entrySet())
+        {
+            databases.put(entry.getKey(), AdditivePatternDatabase.load(entry.getValue().toArray(new File[0])));
+        }
+        return (width, height) ->
+        {
+            AdditivePatternDatabase database = databases.get(width + "x" + height);
+            return database != null ? database.create(width, height) : new LinearConflictHeuristic(width, height);
+        };
+    }
+
+    /**
+     * Solves every .sld file in a directory and prints each result as it
+     * finishes, then the throughput.
+     *
+     * @param args The directory, optionally the number of threads (all cores
+     * by default) and a directory of pattern databases
+     * @throws IOException If the pattern databases can't be mapped
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.out.println("Usage: BatchSolver <directory> [threads] [pattern database directory]");
+            return;
+        }
+        File[] files = new File(args[0]).listFiles((dir, name) -> name.endsWith(".sld"));
+        if (files == null)
+        {
+            System.out.println(args[0] + " isn't a directory");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        IDAStarSolver solver = args.length > 2
+                ? new IDAStarSolver(patternDatabases(new File(args[2])))
+                : new IDAStarSolver();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        long solved = new BatchSolver(solver, pool).solveFiles(Arrays.asList(files))
+                .peek(System.out::println)
+                .filter(BatchResult::isSolved)
+                .count();
+        long millis = (System.nanoTime() - start) / 1000000;
+        pool.shutdown();
+        System.out.println("Solved " + solved + " of " + files.length + " boards in " + millis
+                + "ms on " + threads + " threads");
+    }
+}
@@ -0,0 +1,94 @@
+package slide.solver;
+
+/**
+ * Limits on how much a BudgetedSolver may spend on one board: time, IDA*
+ * nodes and memory. Use Long.MAX_VALUE for a limit that isn't wanted. A
+ * budget holds no state, so one can be shared by every call.
+ *
+ * Limits are checked every few thousand nodes or moves, not continuously,
+ * so a search can go a little over them. On very large boards, setting up
+ * the search alone can take a noticeable part of a short time limit.
+ *
+ * @author Griffin
+ */
+public class Budget
+{
+
+    /**
+     * A budget with no limits.
+     */
+    public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * How long a board may take, in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * The same in nanoseconds, or Long.MAX_VALUE if there is no limit.
+     */
+    private final long nanos;
+
+    /**
+     * The most nodes the optimal search may visit.
+     */
+    private final long nodes;
+
+    /**
+     * The most bytes the search and the path it returns may hold.
+     */
+    private final long bytes;
+
+    /**
+     * Makes a budget.
+     *
+     * @param millis How long a board may take, in milliseconds
+     * @param nodes The most nodes the optimal search may visit
+     * @param bytes The most bytes the search and the path it returns may
+     * hold, not counting shared heuristic tables
+     * @throws IllegalArgumentException If a limit is negative
+     */
+    public Budget(long millis, long nodes, long bytes)
+    {
+        if (millis < 0 || nodes < 0 || bytes < 0)
+        {
+            throw new IllegalArgumentException("Budget limits can't be negative");
+        }
+        this.millis = millis;
+        this.nanos = millis >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : millis * 1000000;
+        this.nodes = nodes;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Checks whether the time has run out.
+     *
+     * @param started When spending started, from System.nanoTime()
+     * @return True if the time limit has passed
+     */
+    boolean expired(long started)
+    {
+        return this.nanos != Long.MAX_VALUE && System.nanoTime() - started >= this.nanos;
+    }
+
+    public long getMillis()
+    {
+        return this.millis;
+    }
+
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+
+    public long getBytes()
+    {
+        return this.bytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.millis + "ms, " + this.nodes + " nodes, " + this.bytes + " bytes";
+    }
+}
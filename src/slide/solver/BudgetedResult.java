@@ -0,0 +1,150 @@
+package slide.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import slide.Move;
+
+/**
+ * What a BudgetedSolver found for one board within its budget.
+ *
+ * @author Griffin
+ */
+public class BudgetedResult
+{
+
+    /**
+     * How good a result is.
+     */
+    public enum Kind
+    {
+        /**
+         * The moves are a shortest solution.
+         */
+        OPTIMAL,
+        /**
+         * The moves solve the board, but there may be a shorter solution.
+         */
+        SUBOPTIMAL,
+        /**
+         * No solution was found, only a lower bound on its length.
+         */
+        LOWER_BOUND
+    }
+
+    private final Kind kind;
+
+    /**
+     * The solution as packed moves (see Move), or null if none was found.
+     */
+    private final int[] moves;
+
+    /**
+     * The width of the board, for unpacking the moves.
+     */
+    private final int width;
+
+    /**
+     * The fewest moves any solution can take, as far as is known.
+     */
+    private final int lowerBound;
+
+    /**
+     * How many nodes the optimal search visited.
+     */
+    private final long nodes;
+
+    /**
+     * How long solving took.
+     */
+    private final long nanos;
+
+    BudgetedResult(Kind kind, int[] moves, int width, int lowerBound, long nodes, long nanos)
+    {
+        this.kind = kind;
+        this.moves = moves;
+        this.width = width;
+        this.lowerBound = lowerBound;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    public Kind getKind()
+    {
+        return this.kind;
+    }
+
+    /**
+     * @return True if the moves are a shortest solution
+     */
+    public boolean isOptimal()
+    {
+        return this.kind == Kind.OPTIMAL;
+    }
+
+    /**
+     * @return True if there are moves that solve the board
+     */
+    public boolean hasSolution()
+    {
+        return this.moves != null;
+    }
+
+    /**
+     * @return The solution as packed moves (see Move), or null if none was
+     * found
+     */
+    public int[] getPackedMoves()
+    {
+        return this.moves;
+    }
+
+    /**
+     * @return The solution, or null if none was found
+     */
+    public List<Move> getMoves()
+    {
+        List<Move> rtnval = null;
+        if (this.moves != null)
+        {
+            rtnval = new ArrayList<>(this.moves.length);
+            for (int move : this.moves)
+            {
+                rtnval.add(Move.unpack(move, this.width));
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * @return The fewest moves any solution can take, as far as is known.
+     * For an optimal result this is the length of the solution.
+     */
+    public int getLowerBound()
+    {
+        return this.lowerBound;
+    }
+
+    /**
+     * @return How many nodes the optimal search visited
+     */
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+
+    public long getNanos()
+    {
+        return this.nanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        String rtnstr = this.kind + ", ";
+        if (this.moves != null)
+        {
+            rtnstr += this.moves.length + " moves, ";
+        }
+        return rtnstr + "at least " + this.lowerBound + ", " + this.nodes + " nodes, " + this.nanos / 1000000 + "ms";
+    }
+}
@@ -0,0 +1,248 @@
+package slide.solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Solves boards within a Budget, for callers that must answer in time even
+ * when a board is too hard to solve optimally. The cheap ReductionSolver
+ * path is found first, as a fallback, and then IDA* searches for a shorter
+ * one until it finds the shortest, proves that the fallback is already as
+ * short as any can be, or runs out of budget. The result says which moves
+ * it has and how good they are. If even the fallback didn't fit in the
+ * budget, all there is to give is a lower bound on the solution's length,
+ * which IDA* raises with every iteration it finishes.
+ *
+ * Each board is searched on the calling thread, which can cancel the search
+ * by being interrupted. The search notices within a few thousand nodes and
+ * returns what it has, leaving the interrupt set. A solver keeps no state
+ * between calls, so one can be shared by many threads.
+ *
+ * @author Griffin
+ */
+public class BudgetedSolver implements Solver
+{
+
+    /**
+     * The fallback path checks the budget once every this many moves (plus
+     * one).
+     */
+    private static final int CHECK_MASK = 0x3FF;
+
+    /**
+     * Makes the heuristic for every board that is solved.
+     */
+    private final HeuristicFactory heuristics;
+
+    /**
+     * The budget used when none is given.
+     */
+    private final Budget budget;
+
+    /**
+     * Finds the fallback paths.
+     */
+    private final ReductionSolver fallback;
+
+    /**
+     * Makes a solver that uses Manhattan distance and linear conflicts.
+     *
+     * @param budget The budget used when none is given
+     */
+    public BudgetedSolver(Budget budget)
+    {
+        this(LinearConflictHeuristic::new, budget);
+    }
+
+    /**
+     * Makes a solver with a different heuristic.
+     *
+     * @param heuristics Makes the heuristic for each board
+     * @param budget The budget used when none is given
+     */
+    public BudgetedSolver(HeuristicFactory heuristics, Budget budget)
+    {
+        this.heuristics = heuristics;
+        this.budget = budget;
+        this.fallback = new ReductionSolver();
+    }
+
+    /**
+     * Finds the best solution the solver's budget allows.
+     *
+     * @throws IllegalStateException If no solution fit in the budget
+     */
+    @Override
+    public List<Move> solve(Board board)
+    {
+        return solution(solve(board, this.budget)).getMoves();
+    }
+
+    /**
+     * Finds the best solution the solver's budget allows.
+     *
+     * @throws IllegalStateException If no solution fit in the budget
+     */
+    @Override
+    public int[] solvePacked(Board board)
+    {
+        return solution(solve(board, this.budget)).getPackedMoves();
+    }
+
+    /**
+     * @param result A result
+     * @return The result
+     * @throws IllegalStateException If it has no solution
+     */
+    private static BudgetedResult solution(BudgetedResult result)
+    {
+        if (!result.hasSolution())
+        {
+            throw new IllegalStateException("No solution fit in the budget, it takes at least "
+                    + result.getLowerBound() + " moves");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the best solution a budget allows. The board isn't changed.
+     *
+     * @param board The board to solve
+     * @param budget The limits to keep to
+     * @return The solution and how good it is, or a lower bound on its
+     * length if no solution fit
+     * @throws IllegalArgumentException If the board can't be solved
+     */
+    public BudgetedResult solve(Board board, Budget budget)
+    {
+        long start = System.nanoTime();
+        if (!board.checkSolvable())
+        {
+            throw new IllegalArgumentException("The board can't be solved");
+        }
+        Search search = new Search(board, this.heuristics.create(board.getWidth(), board.getHeight()));
+        search.budget = budget;
+        search.started = start;
+        int[] best = null;
+        if (search.estimate != 0 && board.getWidth() > 1 && board.getHeight() > 1)
+        {
+            best = fallback(board, budget, start);
+        }
+        int bound = search.estimate;
+        int t = Integer.MAX_VALUE;
+        while (t != Search.FOUND && t != Search.STOPPED && (best == null || bound < best.length))
+        {
+            search.reserve(bound);
+            t = search.dfs(bound);
+            if (t == Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("The board can't be solved");
+            }
+            if (t >= 0)
+            {
+                bound = t;
+            }
+        }
+        BudgetedResult.Kind kind;
+        if (t == Search.FOUND)
+        {
+            best = search.packedMoves();
+            bound = best.length;
+            kind = BudgetedResult.Kind.OPTIMAL;
+        } else if (best == null)
+        {
+            kind = BudgetedResult.Kind.LOWER_BOUND;
+        } else if (bound >= best.length)
+        {
+            bound = best.length;
+            kind = BudgetedResult.Kind.OPTIMAL;
+        } else
+        {
+            kind = BudgetedResult.Kind.SUBOPTIMAL;
+        }
+        return new BudgetedResult(kind, best, board.getWidth(), bound, search.nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Finds the ReductionSolver path, giving up if it runs out of time or
+     * memory or the thread is interrupted.
+     *
+     * @param board The board, at least 2x2
+     * @param budget The limits to keep to
+     * @param start When spending started, from System.nanoTime()
+     * @return The path as packed moves, or null if it didn't fit
+     */
+    private int[] fallback(Board board, Budget budget, long start)
+    {
+        Path path = new Path(budget, start);
+        int[] rtnval = null;
+        try
+        {
+            this.fallback.solvePacked(board, path);
+            rtnval = Arrays.copyOf(path.moves, path.size);
+        } catch (OutOfBudget e)
+        {
+            //Leave it to IDA*, or to a lower bound
+        }
+        return rtnval;
+    }
+
+    /**
+     * Collects packed moves, throwing OutOfBudget when the budget runs out.
+     */
+    private static final class Path implements IntConsumer
+    {
+
+        private final Budget budget;
+
+        private final long start;
+
+        private int[] moves;
+
+        private int size;
+
+        Path(Budget budget, long start)
+        {
+            this.budget = budget;
+            this.start = start;
+            this.moves = new int[64];
+        }
+
+        @Override
+        public void accept(int move)
+        {
+            if ((this.size & CHECK_MASK) == CHECK_MASK
+                    && (this.budget.expired(this.start) || Thread.currentThread().isInterrupted()))
+            {
+                throw new OutOfBudget();
+            }
+            if (this.size == this.moves.length)
+            {
+                if (8L * this.moves.length > this.budget.getBytes())
+                {
+                    throw new OutOfBudget();
+                }
+                this.moves = Arrays.copyOf(this.moves, this.moves.length * 2);
+            }
+            this.moves[this.size++] = move;
+        }
+    }
+
+    /**
+     * Thrown out of ReductionSolver to give up on the fallback path. It has
+     * no stack trace, since it is only ever caught.
+     */
+    private static final class OutOfBudget extends RuntimeException
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        OutOfBudget()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
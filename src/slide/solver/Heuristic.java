@@ -0,0 +1,42 @@
+package slide.solver;
+
+/**
+ * An admissible estimate of how many moves a board is from being solved. A
+ * heuristic is made for one board size by a HeuristicFactory and works on the
+ * flat cells of a board (the same layout Board uses) together with positions,
+ * the inverse of cells, where positions[tile] is the index of the cell holding
+ * tile and positions[0] is the blank.
+ *
+ * A heuristic may keep scratch space, so one instance must only be used by
+ * one search at a time.
+ *
+ * @author Griffin
+ */
+public interface Heuristic
+{
+
+    /**
+     * Estimates the whole board from scratch. This must never be more than
+     * the real number of moves left, and must only be 0 for a solved board.
+     *
+     * @param cells The tiles, left to right and top to bottom
+     * @param positions The index of every tile in cells
+     * @return The estimate for the board
+     */
+    int estimate(int[] cells, int[] positions);
+
+    /**
+     * Returns the part of the estimate that a move between two neighbouring
+     * cells can change. A search calls this once before and once after moving
+     * the blank from one of the cells to the other, and adds the difference to
+     * its running estimate, so a move doesn't have to re-estimate the whole
+     * board.
+     *
+     * @param cells The tiles, left to right and top to bottom
+     * @param positions The index of every tile in cells
+     * @param a The index of one of the cells
+     * @param b The index of the other cell
+     * @return The part of the estimate that depends on the two cells
+     */
+    int local(int[] cells, int[] positions, int a, int b);
+}
@@ -0,0 +1,20 @@
+package slide.solver;
+
+/**
+ * Makes heuristics for a board size. A factory can be shared between threads,
+ * every search asks it for its own Heuristic.
+ *
+ * @author Griffin
+ */
+public interface HeuristicFactory
+{
+
+    /**
+     * Makes a heuristic for boards of one size.
+     *
+     * @param width The width of the boards
+     * @param height The height of the boards
+     * @return A new heuristic for that size
+     */
+    Heuristic create(int width, int height);
+}
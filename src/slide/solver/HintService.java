@@ -0,0 +1,301 @@
+package slide.solver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import slide.Board;
+
+/**
+ * Answers "what is the best next move" for boards, for serving hints. Boards
+ * of a size that has a StateSpace are answered from it straight away. Other
+ * boards are solved, and the next move from every position along the
+ * solution is cached by the position's packed key, so asking again anywhere
+ * along the path is one lookup. Hints are only as short as the solver's
+ * solutions, so use an optimal solver for optimal hints.
+ *
+ * The cache is bounded by an estimate of its size in bytes and evicts the
+ * least recently used positions first. Solving is done outside the lock, so
+ * one slow board doesn't hold up hints for others. A service is safe to
+ * share between threads.
+ *
+ * @author Griffin
+ */
+public class HintService
+{
+
+    /**
+     * About how many bytes one cached position takes besides its key: the
+     * map node, the key object and the array header.
+     */
+    private static final int ENTRY_BYTES = 96;
+
+    /**
+     * Solves boards that aren't cached.
+     */
+    private final Solver solver;
+
+    /**
+     * The complete tables, by board size.
+     */
+    private final StateSpace[] tables;
+
+    /**
+     * The most bytes the cache may take.
+     */
+    private final long capacity;
+
+    /**
+     * The next move from every cached position, least recently used first.
+     */
+    private final LinkedHashMap<Key, Integer> cache;
+
+    /**
+     * About how many bytes the cache takes.
+     */
+    private long weight;
+
+    /**
+     * Hints answered from a table, from the cache, and by solving.
+     */
+    private final LongAdder tableHits, hits, misses;
+
+    /**
+     * Makes a service.
+     *
+     * @param solver Solves boards that aren't cached, which must be safe to
+     * share between threads
+     * @param capacity The most bytes the cache may take
+     * @param tables Tables for the board sizes they cover
+     */
+    public HintService(Solver solver, long capacity, StateSpace... tables)
+    {
+        this.solver = solver;
+        this.tables = tables.clone();
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.tableHits = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Finds the next move towards solving a board. The board isn't changed.
+     *
+     * @param board The board
+     * @return The move, packed (see slide.Move), or -1 if the board is solved
+     * @throws IllegalArgumentException If the board can't be solved
+     */
+    public int hint(Board board)
+    {
+        int rtnval = -1;
+        StateSpace table = table(board);
+        if (table != null)
+        {
+            this.tableHits.increment();
+            rtnval = table.bestMove(board);
+        } else if (!board.checkSolved())
+        {
+            Key key = new Key(board);
+            Integer move;
+            synchronized (this)
+            {
+                move = this.cache.get(key);
+            }
+            if (move != null)
+            {
+                this.hits.increment();
+                rtnval = move;
+            } else
+            {
+                this.misses.increment();
+                rtnval = learn(board, key);
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Solves a board and caches the next move from every position along the
+     * solution.
+     *
+     * @param board The board
+     * @param key The board's key
+     * @return The first move of the solution
+     */
+    private int learn(Board board, Key key)
+    {
+        int[] moves = this.solver.solvePacked(board);
+        Key[] keys = new Key[moves.length];
+        Board walk = new Board(board.getWidth(), board.getHeight(), tiles(board));
+        keys[0] = key;
+        for (int i = 1; i < moves.length; ++i)
+        {
+            walk.applyMove(moves[i - 1]);
+            keys[i] = new Key(walk);
+        }
+        synchronized (this)
+        {
+            for (int i = 0; i < moves.length; ++i)
+            {
+                if (this.cache.put(keys[i], moves[i]) == null)
+                {
+                    this.weight += keys[i].weight();
+                }
+            }
+            Iterator<Map.Entry<Key, Integer>> eldest = this.cache.entrySet().iterator();
+            while (this.weight > this.capacity && eldest.hasNext())
+            {
+                this.weight -= eldest.next().getKey().weight();
+                eldest.remove();
+            }
+        }
+        return moves[0];
+    }
+
+    /**
+     * Finds the table for a board's size.
+     *
+     * @param board The board
+     * @return The table, or null if there isn't one
+     */
+    private StateSpace table(Board board)
+    {
+        StateSpace rtnval = null;
+        for (StateSpace table : this.tables)
+        {
+            if (table.getWidth() == board.getWidth() && table.getHeight() == board.getHeight())
+            {
+                rtnval = table;
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Copies a board's tiles.
+     *
+     * @param board The board
+     * @return The tiles, left to right and top to bottom
+     */
+    private static int[] tiles(Board board)
+    {
+        int width = board.getWidth();
+        int[] rtnval = new int[width * board.getHeight()];
+        for (int k = 0; k < rtnval.length; ++k)
+        {
+            rtnval[k] = board.getTile(k % width, k / width);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Empties the cache. The counters aren't reset.
+     */
+    public synchronized void clear()
+    {
+        this.cache.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * @return How many positions are cached
+     */
+    public synchronized int size()
+    {
+        return this.cache.size();
+    }
+
+    /**
+     * @return About how many bytes the cache takes
+     */
+    public synchronized long getWeight()
+    {
+        return this.weight;
+    }
+
+    public long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @return How many hints were answered from a table
+     */
+    public long getTableHits()
+    {
+        return this.tableHits.sum();
+    }
+
+    /**
+     * @return How many hints were answered from the cache
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return How many hints needed a board to be solved
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return size() + " positions cached in about " + getWeight() + " bytes, " + getTableHits()
+                + " table hits, " + getHits() + " hits, " + getMisses() + " misses";
+    }
+
+    /**
+     * A packed board and its size as a map key.
+     */
+    private static final class Key
+    {
+
+        private final int width, height;
+
+        private final long[] key;
+
+        private final int hash;
+
+        Key(Board board)
+        {
+            this.width = board.getWidth();
+            this.height = board.getHeight();
+            this.key = board.toKey();
+            this.hash = Arrays.hashCode(this.key) * 31 + this.width;
+        }
+
+        /**
+         * @return About how many bytes the key and its cache entry take
+         */
+        long weight()
+        {
+            return ENTRY_BYTES + 8L * this.key.length;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            boolean rtnbool = false;
+            if (other instanceof Key)
+            {
+                Key that = (Key) other;
+                rtnbool = this.width == that.width && this.height == that.height
+                        && Arrays.equals(this.key, that.key);
+            }
+            return rtnbool;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+    }
+}
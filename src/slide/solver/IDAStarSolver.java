@@ -0,0 +1,152 @@
+package slide.solver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Finds the shortest solution of a board with iterative deepening A*. By
+ * default it uses Manhattan distance with linear conflicts, which solves 4x4
+ * boards in milliseconds to seconds. Larger boards need a stronger heuristic
+ * or the greedy solvers.
+ *
+ * A solver keeps no state between calls, so one can be shared by many
+ * threads. A solver can be given a SolverListener to watch its runs, which
+ * is then called from every thread the solver is used on.
+ *
+ * @author Griffin
+ */
+public class IDAStarSolver implements Solver
+{
+
+    /**
+     * Makes the heuristic for every board that is solved.
+     */
+    private final HeuristicFactory heuristics;
+
+    /**
+     * Told how every run goes, or null.
+     */
+    private final SolverListener listener;
+
+    /**
+     * Makes a solver that uses Manhattan distance and linear conflicts.
+     */
+    public IDAStarSolver()
+    {
+        this(LinearConflictHeuristic::new);
+    }
+
+    /**
+     * Makes a solver with a different heuristic.
+     *
+     * @param heuristics Makes the heuristic for each board
+     */
+    public IDAStarSolver(HeuristicFactory heuristics)
+    {
+        this(heuristics, null);
+    }
+
+    /**
+     * Makes a solver that tells a listener how its runs go.
+     *
+     * @param heuristics Makes the heuristic for each board
+     * @param listener The listener, which must be thread safe if the solver
+     * is shared, or null
+     */
+    public IDAStarSolver(HeuristicFactory heuristics, SolverListener listener)
+    {
+        this.heuristics = heuristics;
+        this.listener = listener;
+    }
+
+    /**
+     * Finds a shortest solution.
+     */
+    @Override
+    public List<Move> solve(Board board)
+    {
+        return run(board).moves();
+    }
+
+    @Override
+    public int[] solvePacked(Board board)
+    {
+        return run(board).packedMoves();
+    }
+
+    /**
+     * Searches a board until it is solved, telling the listener about it.
+     *
+     * @param board The board to solve
+     * @return The search, left on the solution
+     */
+    private Search run(Board board)
+    {
+        Search rtnval = start(board);
+        if (this.listener == null)
+        {
+            rtnval.iterate(null);
+        } else
+        {
+            long start = System.nanoTime();
+            int iterations = rtnval.iterate(this.listener);
+            report(start, iterations, Collections.singletonList(rtnval), rtnval.depth);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Adds up the counters of a run's searches and gives them to the
+     * listener.
+     *
+     * @param start When the run started, from System.nanoTime()
+     * @param iterations How many iterations there were
+     * @param searches Every search the run used
+     * @param length How many moves the solution has
+     */
+    void report(long start, int iterations, Collection<Search> searches, int length)
+    {
+        long expanded = 0;
+        long generated = 0;
+        long heuristicNanos = 0;
+        long bytes = 0;
+        for (Search search : searches)
+        {
+            expanded += search.expanded;
+            generated += search.generated();
+            heuristicNanos += search.heuristicNanos;
+            bytes += search.bytes();
+        }
+        this.listener.finished(new SolverStats(expanded, generated, iterations, heuristicNanos,
+                System.nanoTime() - start, bytes, length));
+    }
+
+    /**
+     * @return The listener told how every run goes, or null
+     */
+    public SolverListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * Checks that a board can be solved and sets up a search for it.
+     *
+     * @param board The board to solve
+     * @return A search starting at the board
+     * @throws IllegalArgumentException If the board can't be solved
+     */
+    Search start(Board board)
+    {
+        if (!board.checkSolvable())
+        {
+            throw new IllegalArgumentException("The board can't be solved");
+        }
+        Search rtnval = new Search(board, this.heuristics.create(board.getWidth(), board.getHeight()));
+        rtnval.watched = this.listener != null;
+        return rtnval;
+    }
+}
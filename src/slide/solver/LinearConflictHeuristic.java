@@ -0,0 +1,148 @@
+package slide.solver;
+
+import slide.Board;
+
+/**
+ * Manhattan distance plus linear conflicts. Two tiles are in conflict when
+ * they are both in the row (or column) they belong in, but in the wrong order,
+ * so one of them has to leave the line and come back, costing 2 moves that
+ * the Manhattan distance doesn't count. For each line the fewest tiles that
+ * have to leave is the number of home tiles not in the longest run that is
+ * already in order.
+ *
+ * @author Griffin
+ */
+public class LinearConflictHeuristic extends ManhattanHeuristic
+{
+
+    /**
+     * Scratch space for the tiles of one line and for the longest increasing
+     * subsequence of them. This is why an instance can't be shared.
+     */
+    private final int[] line, tails;
+
+    /**
+     * Makes the lookup arrays for one board size.
+     *
+     * @param width The width of the boards
+     * @param height The height of the boards
+     */
+    public LinearConflictHeuristic(int width, int height)
+    {
+        super(width, height);
+        this.line = new int[Math.max(width, height)];
+        this.tails = new int[Math.max(width, height)];
+    }
+
+    @Override
+    public int estimate(int[] cells, int[] positions)
+    {
+        int rtnval = super.estimate(cells, positions);
+        for (int j = 0; j < this.height; ++j)
+        {
+            rtnval += rowConflicts(cells, j);
+        }
+        for (int i = 0; i < this.width; ++i)
+        {
+            rtnval += columnConflicts(cells, i);
+        }
+        return rtnval;
+    }
+
+    /**
+     * A horizontal move only changes the columns of the two cells and a
+     * vertical move only changes their rows, because moving a tile along a
+     * line doesn't change the order of the tiles on it.
+     */
+    @Override
+    public int local(int[] cells, int[] positions, int a, int b)
+    {
+        int rtnval = super.local(cells, positions, a, b);
+        if (this.row[a] == this.row[b])
+        {
+            rtnval += columnConflicts(cells, this.column[a])
+                    + columnConflicts(cells, this.column[b]);
+        } else
+        {
+            rtnval += rowConflicts(cells, this.row[a])
+                    + rowConflicts(cells, this.row[b]);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Counts the extra moves needed because of conflicts on a row.
+     *
+     * @param cells The tiles
+     * @param j The row
+     * @return Two for every tile that has to leave the row
+     */
+    private int rowConflicts(int[] cells, int j)
+    {
+        int count = 0;
+        for (int i = 0; i < this.width; ++i)
+        {
+            int tile = cells[j * this.width + i];
+            if (tile != Board.BLANK && this.row[tile - 1] == j)
+            {
+                this.line[count++] = this.column[tile - 1];
+            }
+        }
+        return 2 * (count - longestIncreasing(count));
+    }
+
+    /**
+     * Counts the extra moves needed because of conflicts on a column.
+     *
+     * @param cells The tiles
+     * @param i The column
+     * @return Two for every tile that has to leave the column
+     */
+    private int columnConflicts(int[] cells, int i)
+    {
+        int count = 0;
+        for (int j = 0; j < this.height; ++j)
+        {
+            int tile = cells[j * this.width + i];
+            if (tile != Board.BLANK && this.column[tile - 1] == i)
+            {
+                this.line[count++] = this.row[tile - 1];
+            }
+        }
+        return 2 * (count - longestIncreasing(count));
+    }
+
+    /**
+     * Finds the length of the longest increasing subsequence of the first
+     * count entries of line, by patience sorting into tails.
+     *
+     * @param count How many entries of line are used
+     * @return The length of the longest increasing subsequence
+     */
+    private int longestIncreasing(int count)
+    {
+        int length = 0;
+        for (int k = 0; k < count; ++k)
+        {
+            int low = 0;
+            int high = length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (this.tails[mid] < this.line[k])
+                {
+                    low = mid + 1;
+                } else
+                {
+                    high = mid;
+                }
+            }
+            this.tails[low] = this.line[k];
+            if (low == length)
+            {
+                ++length;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,78 @@
+package slide.solver;
+
+import slide.Board;
+
+/**
+ * The sum of the Manhattan distances of every tile from the cell it belongs
+ * in. The blank isn't counted.
+ *
+ * @author Griffin
+ */
+public class ManhattanHeuristic implements Heuristic
+{
+
+    /**
+     * The width and height of the boards this is for.
+     */
+    protected final int width, height;
+
+    /**
+     * The column and row of every cell, so distances can be worked out
+     * without dividing.
+     */
+    protected final int[] column, row;
+
+    /**
+     * Makes the lookup arrays for one board size.
+     *
+     * @param width The width of the boards
+     * @param height The height of the boards
+     */
+    public ManhattanHeuristic(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.column = new int[width * height];
+        this.row = new int[width * height];
+        for (int k = 0; k < width * height; ++k)
+        {
+            this.column[k] = k % width;
+            this.row[k] = k / width;
+        }
+    }
+
+    /**
+     * Returns how far a tile is from home.
+     *
+     * @param tile The tile, or Board.BLANK
+     * @param index The cell the tile is in
+     * @return The Manhattan distance of the tile, 0 for the blank
+     */
+    protected final int distance(int tile, int index)
+    {
+        int rtnval = 0;
+        if (tile != Board.BLANK)
+        {
+            rtnval = Math.abs(this.column[index] - this.column[tile - 1])
+                    + Math.abs(this.row[index] - this.row[tile - 1]);
+        }
+        return rtnval;
+    }
+
+    @Override
+    public int estimate(int[] cells, int[] positions)
+    {
+        int rtnval = 0;
+        for (int k = 0; k < cells.length; ++k)
+        {
+            rtnval += distance(cells[k], k);
+        }
+        return rtnval;
+    }
+
+    @Override
+    public int local(int[] cells, int[] positions, int a, int b)
+    {
+        return distance(cells[a], a) + distance(cells[b], b);
+    }
+}
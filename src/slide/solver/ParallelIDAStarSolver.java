@@ -0,0 +1,311 @@
+package slide.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Solves one board with IDA* on many cores. The search tree is cut at a
+ * shallow depth, deep enough to give every worker plenty of subtrees, and
+ * each iteration searches those subtrees as work stealing tasks. The workers
+ * share only atomics: the smallest cost that went over the bound, which
+ * becomes the next bound, and a flag set by the first worker to find a
+ * solution, which the others poll every few thousand nodes. Every subtree of
+ * an iteration uses the same bound, so the solution is just as short as the
+ * one the sequential solver finds, although it may be a different one.
+ *
+ * Every worker counts nodes in its own search, and a listener gets the
+ * counts added up between iterations, when the workers are idle.
+ *
+ * @author Griffin
+ */
+public class ParallelIDAStarSolver extends IDAStarSolver
+{
+
+    /**
+     * How many subtrees to make per worker, so that workers that get easy
+     * subtrees can steal from the ones that got hard ones.
+     */
+    private static final int UNITS_PER_WORKER = 32;
+
+    /**
+     * The pool the subtrees are searched on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Makes a parallel solver that uses Manhattan distance and linear
+     * conflicts.
+     *
+     * @param pool The pool to search on
+     */
+    public ParallelIDAStarSolver(ForkJoinPool pool)
+    {
+        this(LinearConflictHeuristic::new, pool);
+    }
+
+    /**
+     * Makes a parallel solver with a different heuristic.
+     *
+     * @param heuristics Makes the heuristic for each worker
+     * @param pool The pool to search on
+     */
+    public ParallelIDAStarSolver(HeuristicFactory heuristics, ForkJoinPool pool)
+    {
+        this(heuristics, pool, null);
+    }
+
+    /**
+     * Makes a parallel solver that tells a listener how its runs go.
+     *
+     * @param heuristics Makes the heuristic for each worker
+     * @param pool The pool to search on
+     * @param listener The listener, or null
+     */
+    public ParallelIDAStarSolver(HeuristicFactory heuristics, ForkJoinPool pool, SolverListener listener)
+    {
+        super(heuristics, listener);
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Move> solve(Board board)
+    {
+        SolverListener listener = getListener();
+        long start = listener != null ? System.nanoTime() : 0;
+        Search root = start(board);
+        //One search per worker thread, dropped when this call returns
+        Map<Thread, Search> searches = new ConcurrentHashMap<>();
+        int iterations = 0;
+        List<int[]> units = null;
+        if (root.estimate != 0)
+        {
+            units = split(root, UNITS_PER_WORKER * this.pool.getParallelism());
+        }
+        List<Move> rtnval;
+        if (units == null)
+        {
+            //Either the board is solved or split() found a solution
+            rtnval = root.moves();
+        } else
+        {
+            Function<Thread, Search> create = thread -> start(board);
+            AtomicBoolean found = new AtomicBoolean();
+            AtomicReference<List<Move>> solution = new AtomicReference<>();
+            int bound = root.estimate;
+            while (!found.get())
+            {
+                AtomicInteger next = new AtomicInteger(Integer.MAX_VALUE);
+                if (listener == null)
+                {
+                    this.pool.invoke(new Unit(units, 0, units.size(), bound, searches, create, found, solution, next));
+                } else
+                {
+                    long expanded = expanded(searches.values());
+                    long generated = generated(searches.values());
+                    long begin = System.nanoTime();
+                    this.pool.invoke(new Unit(units, 0, units.size(), bound, searches, create, found, solution, next));
+                    listener.iteration(bound, expanded(searches.values()) - expanded,
+                            generated(searches.values()) - generated,
+                            System.nanoTime() - begin);
+                }
+                ++iterations;
+                bound = next.get();
+                if (!found.get() && bound == Integer.MAX_VALUE)
+                {
+                    throw new IllegalArgumentException("The board can't be solved");
+                }
+            }
+            rtnval = solution.get();
+        }
+        if (listener != null)
+        {
+            List<Search> workers = new ArrayList<>(searches.values());
+            workers.add(root);
+            report(start, iterations, workers, rtnval.size());
+        }
+        return rtnval;
+    }
+
+    /**
+     * Packs the moves solve() finds, so that packed solutions are searched
+     * in parallel too.
+     */
+    @Override
+    public int[] solvePacked(Board board)
+    {
+        List<Move> moves = solve(board);
+        int[] rtnval = new int[moves.size()];
+        for (int i = 0; i < rtnval.length; ++i)
+        {
+            rtnval[i] = moves.get(i).pack(board.getWidth(), false);
+        }
+        return rtnval;
+    }
+
+    /**
+     * @param searches Searches that aren't running
+     * @return How many nodes they have expanded between them
+     */
+    private static long expanded(Collection<Search> searches)
+    {
+        long rtnval = 0;
+        for (Search search : searches)
+        {
+            rtnval += search.expanded;
+        }
+        return rtnval;
+    }
+
+    /**
+     * @param searches Searches that aren't running
+     * @return How many nodes they have generated between them
+     */
+    private static long generated(Collection<Search> searches)
+    {
+        long rtnval = 0;
+        for (Search search : searches)
+        {
+            rtnval += search.generated();
+        }
+        return rtnval;
+    }
+
+    /**
+     * Cuts the tree at the first depth with at least count nodes, checking
+     * every node on the way for a solution. If one is found root is left on
+     * it, otherwise root is left at the start.
+     *
+     * @param root A search at the start
+     * @param count The fewest subtrees wanted
+     * @return The path of blank positions to the root of every subtree, or
+     * null if a solution was found
+     * @throws IllegalArgumentException If the tree ends before count nodes
+     * without a solution, so there is none
+     */
+    private static List<int[]> split(Search root, int count)
+    {
+        List<int[]> level = new ArrayList<>();
+        level.add(new int[]
+        {
+            root.path[0]
+        });
+        while (level.size() < count)
+        {
+            List<int[]> deeper = new ArrayList<>();
+            for (int[] path : level)
+            {
+                int blank = path[path.length - 1];
+                int previous = path.length > 1 ? path[path.length - 2] : -1;
+                for (int dir = 0; dir < 4; ++dir)
+                {
+                    int target = root.neighbour(blank, blank % root.width, blank / root.width, dir);
+                    if (target != -1 && target != previous)
+                    {
+                        int[] child = Arrays.copyOf(path, path.length + 1);
+                        child[path.length] = target;
+                        root.reserve(child.length);
+                        for (int g = 1; g < child.length; ++g)
+                        {
+                            root.move(child[g]);
+                        }
+                        if (root.estimate == 0)
+                        {
+                            return null;
+                        }
+                        root.rewind();
+                        deeper.add(child);
+                    }
+                }
+            }
+            if (deeper.isEmpty())
+            {
+                throw new IllegalArgumentException("The board can't be solved");
+            }
+            level = deeper;
+        }
+        return level;
+    }
+
+    /**
+     * A range of subtrees searched with one bound. Ranges are halved until a
+     * task has one subtree, so idle workers can steal half of what is left.
+     */
+    private static class Unit extends RecursiveAction
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<int[]> units;
+        private final int from, to, bound;
+        private final Map<Thread, Search> searches;
+        private final Function<Thread, Search> create;
+        private final AtomicBoolean found;
+        private final AtomicReference<List<Move>> solution;
+        private final AtomicInteger next;
+
+        Unit(List<int[]> units, int from, int to, int bound, Map<Thread, Search> searches,
+                Function<Thread, Search> create, AtomicBoolean found, AtomicReference<List<Move>> solution, AtomicInteger next)
+        {
+            this.units = units;
+            this.from = from;
+            this.to = to;
+            this.bound = bound;
+            this.searches = searches;
+            this.create = create;
+            this.found = found;
+            this.solution = solution;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.found.get())
+            {
+                return;
+            }
+            if (this.to - this.from > 1)
+            {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Unit(this.units, this.from, mid, this.bound, this.searches, this.create, this.found,
+                        this.solution, this.next),
+                        new Unit(this.units, mid, this.to, this.bound, this.searches, this.create, this.found,
+                                this.solution, this.next));
+            } else
+            {
+                Search search = this.searches.computeIfAbsent(Thread.currentThread(), this.create);
+                search.stop = this.found;
+                search.reserve(this.bound);
+                int[] path = this.units.get(this.from);
+                for (int g = 1; g < path.length; ++g)
+                {
+                    search.move(path[g]);
+                }
+                int t = search.deepen(this.bound);
+                if (t == Search.FOUND)
+                {
+                    if (this.solution.compareAndSet(null, search.moves()))
+                    {
+                        this.found.set(true);
+                    }
+                } else if (t != Search.STOPPED)
+                {
+                    this.next.accumulateAndGet(t, Math::min);
+                }
+                search.rewind();
+            }
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package slide.solver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A pattern database for one group of tiles on one board size. For every way
+ * the tiles of the pattern can be placed on the board it holds the fewest
+ * moves of those tiles (moves of other tiles are free) needed to put them all
+ * home. Because only the pattern's own moves are counted, databases over
+ * disjoint patterns can be added together and stay admissible.
+ *
+ * The placements are ranked densely as partial permutations, so a 6 tile
+ * pattern on a 4x4 has 16 * 15 * 14 * 13 * 12 * 11 entries. Each entry is a
+ * nibble holding how much the pattern's real cost is over the Manhattan
+ * distance of its tiles, capped at 15, which always fits and stays
+ * admissible.
+ *
+ * A database is either built in memory by build() or mapped from a file
+ * written by save(), in which case the table is never read into the heap
+ * and the pages are shared with every other process mapping the same file.
+ * Lookups only read the table, so one database can be shared by any number
+ * of threads.
+ *
+ * @author Griffin
+ */
+public class PatternDatabase
+{
+
+    /**
+     * The first four bytes of a pattern database file, "SPDB".
+     */
+    private static final int MAGIC = 0x53504442;
+
+    /**
+     * The version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * The tiles in the pattern.
+     */
+    private final int[] tiles;
+
+    /**
+     * The column and row of every cell.
+     */
+    private final int[] column, row;
+
+    /**
+     * The nibble packed table, two entries per byte with the even entry in
+     * the low nibble.
+     */
+    private final ByteBuffer table;
+
+    /**
+     * Wraps a table.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param tiles The tiles in the pattern
+     * @param table The nibble packed table
+     */
+    private PatternDatabase(int width, int height, int[] tiles, ByteBuffer table)
+    {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.table = table;
+        this.column = new int[width * height];
+        this.row = new int[width * height];
+        for (int k = 0; k < width * height; ++k)
+        {
+            this.column[k] = k % width;
+            this.row[k] = k / width;
+        }
+    }
+
+    /**
+     * Builds a database with a breadth first search backwards from the
+     * solved board. A state is the placement of the pattern's tiles plus the
+     * blank, and moving the blank onto a cell that isn't in the pattern is
+     * free, so instead of queueing those moves the whole region the blank can
+     * reach for free is filled at once. The visited states and the current
+     * and next layer are bitsets over placement * cells, so building a 6 tile
+     * pattern on a 5x5 needs about 1.2GB of heap.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param tiles The tiles in the pattern
+     * @return The new database
+     * @throws IllegalArgumentException If the board has more than 64 cells or
+     * a tile isn't on the board
+     */
+    public static PatternDatabase build(int width, int height, int... tiles)
+    {
+        int n = width * height;
+        if (n > 64)
+        {
+            throw new IllegalArgumentException("Pattern databases only work for boards of up to 64 cells");
+        }
+        for (int tile : tiles)
+        {
+            if (tile < 1 || tile >= n)
+            {
+                throw new IllegalArgumentException("Tile " + tile + " isn't on a " + width + "x" + height + " board");
+            }
+        }
+        long entries = entries(n, tiles.length);
+        PatternDatabase rtnval = new PatternDatabase(width, height, tiles.clone(),
+                ByteBuffer.allocate((int) ((entries + 1) / 2)));
+        rtnval.search(entries);
+        return rtnval;
+    }
+
+    /**
+     * Counts the placements of a pattern.
+     *
+     * @param n The number of cells
+     * @param k The number of tiles in the pattern
+     * @return n! / (n - k)!
+     */
+    private static long entries(int n, int k)
+    {
+        long rtnval = 1;
+        for (int i = 0; i < k; ++i)
+        {
+            rtnval *= n - i;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Fills in the table. See build().
+     *
+     * @param entries The number of placements
+     */
+    private void search(long entries)
+    {
+        int n = this.width * this.height;
+        long states = entries * n;
+        int words = (int) ((states + 63) >>> 6);
+        long[] visited = new long[words];
+        long[] frontier = new long[words];
+        long[] next = new long[words];
+        long[] seen = new long[(int) ((entries + 63) >>> 6)];
+        int[] positions = new int[this.tiles.length];
+        int[] stack = new int[n];
+        for (int i = 0; i < this.tiles.length; ++i)
+        {
+            positions[i] = this.tiles[i] - 1;
+        }
+        long start = rank(positions) * n + (n - 1);
+        set(visited, start);
+        set(frontier, start);
+        boolean more = true;
+        for (int depth = 0; more; ++depth)
+        {
+            more = false;
+            for (int w = 0; w < words; ++w)
+            {
+                long word;
+                while ((word = frontier[w]) != 0)
+                {
+                    long state = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                    long placement = state / n;
+                    unrank(placement, positions);
+                    long occupied = 0;
+                    for (int position : positions)
+                    {
+                        occupied |= 1L << position;
+                    }
+                    if (!get(seen, placement))
+                    {
+                        set(seen, placement);
+                        int extra = depth - manhattan(positions);
+                        put(placement, Math.min(extra, 15));
+                    }
+                    //Flood fill the cells the blank can reach for free
+                    long region = 1L << (int) (state % n);
+                    int top = 0;
+                    stack[top++] = (int) (state % n);
+                    while (top > 0)
+                    {
+                        int cell = stack[--top];
+                        long s = placement * n + cell;
+                        set(visited, s);
+                        clear(frontier, s);
+                        clear(next, s);
+                        for (int dir = 0; dir < 4; ++dir)
+                        {
+                            int target = neighbour(cell, dir);
+                            if (target == -1)
+                            {
+                                continue;
+                            }
+                            if ((occupied & (1L << target)) == 0)
+                            {
+                                if ((region & (1L << target)) == 0)
+                                {
+                                    region |= 1L << target;
+                                    stack[top++] = target;
+                                }
+                            } else
+                            {
+                                //Slide the pattern tile at target into cell
+                                int i = 0;
+                                while (positions[i] != target)
+                                {
+                                    ++i;
+                                }
+                                positions[i] = cell;
+                                long moved = rank(positions) * n + target;
+                                positions[i] = target;
+                                if (!get(visited, moved))
+                                {
+                                    set(visited, moved);
+                                    set(next, moved);
+                                    more = true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            long[] temp = frontier;
+            frontier = next;
+            next = temp;
+        }
+    }
+
+    /**
+     * Finds the cell next to another in a direction, 0 up, 1 right, 2 down
+     * and 3 left.
+     *
+     * @param cell The cell
+     * @param dir The direction
+     * @return The neighbour, or -1 if it is off the board
+     */
+    private int neighbour(int cell, int dir)
+    {
+        int rtnval = -1;
+        switch (dir)
+        {
+            case 0:
+                if (this.row[cell] > 0)
+                {
+                    rtnval = cell - this.width;
+                }
+                break;
+            case 1:
+                if (this.column[cell] < this.width - 1)
+                {
+                    rtnval = cell + 1;
+                }
+                break;
+            case 2:
+                if (this.row[cell] < this.height - 1)
+                {
+                    rtnval = cell + this.width;
+                }
+                break;
+            case 3:
+                if (this.column[cell] > 0)
+                {
+                    rtnval = cell - 1;
+                }
+                break;
+        }
+        return rtnval;
+    }
+
+    private static boolean get(long[] bits, long index)
+    {
+        return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, long index)
+    {
+        bits[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, long index)
+    {
+        bits[(int) (index >>> 6)] &= ~(1L << index);
+    }
+
+    /**
+     * Ranks a placement as a partial permutation. Each position is replaced
+     * by how many free cells come before it, which gives a mixed radix number
+     * with digits in n, n - 1, ... n - k + 1.
+     *
+     * @param positions The cell of each tile in the pattern
+     * @return The dense index of the placement
+     */
+    private long rank(int[] positions)
+    {
+        int n = this.width * this.height;
+        long used = 0;
+        long rtnval = 0;
+        for (int i = 0; i < positions.length; ++i)
+        {
+            int p = positions[i];
+            rtnval = rtnval * (n - i) + p - Long.bitCount(used & ((1L << p) - 1));
+            used |= 1L << p;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Turns a dense index back into a placement.
+     *
+     * @param rank The dense index
+     * @param positions Filled with the cell of each tile in the pattern
+     */
+    private void unrank(long rank, int[] positions)
+    {
+        int n = this.width * this.height;
+        for (int i = positions.length - 1; i >= 0; --i)
+        {
+            positions[i] = (int) (rank % (n - i));
+            rank /= n - i;
+        }
+        long used = 0;
+        for (int i = 0; i < positions.length; ++i)
+        {
+            int free = positions[i];
+            int p = 0;
+            while ((used & (1L << p)) != 0 || free > 0)
+            {
+                if ((used & (1L << p)) == 0)
+                {
+                    --free;
+                }
+                ++p;
+            }
+            positions[i] = p;
+            used |= 1L << p;
+        }
+    }
+
+    /**
+     * Adds up the Manhattan distances of the pattern's tiles.
+     *
+     * @param positions The cell of each tile in the pattern
+     * @return The sum of their distances from home
+     */
+    private int manhattan(int[] positions)
+    {
+        int rtnval = 0;
+        for (int i = 0; i < positions.length; ++i)
+        {
+            int home = this.tiles[i] - 1;
+            rtnval += Math.abs(this.column[positions[i]] - this.column[home])
+                    + Math.abs(this.row[positions[i]] - this.row[home]);
+        }
+        return rtnval;
+    }
+
+    private void put(long index, int value)
+    {
+        int b = (int) (index >>> 1);
+        int old = this.table.get(b);
+        if ((index & 1) == 0)
+        {
+            this.table.put(b, (byte) ((old & 0xF0) | value));
+        } else
+        {
+            this.table.put(b, (byte) ((old & 0x0F) | (value << 4)));
+        }
+    }
+
+    /**
+     * Looks up the pattern's cost on a board.
+     *
+     * @param positions The index of every tile on the board, as the solver
+     * keeps it
+     * @return The fewest moves of the pattern's tiles needed to solve them
+     */
+    public int value(int[] positions)
+    {
+        int n = this.width * this.height;
+        long used = 0;
+        long index = 0;
+        int rtnval = 0;
+        for (int i = 0; i < this.tiles.length; ++i)
+        {
+            int p = positions[this.tiles[i]];
+            int home = this.tiles[i] - 1;
+            rtnval += Math.abs(this.column[p] - this.column[home])
+                    + Math.abs(this.row[p] - this.row[home]);
+            index = index * (n - i) + p - Long.bitCount(used & ((1L << p) - 1));
+            used |= 1L << p;
+        }
+        int b = this.table.get((int) (index >>> 1));
+        return rtnval + ((index & 1) == 0 ? b & 0x0F : (b >>> 4) & 0x0F);
+    }
+
+    /**
+     * Writes the database to a file that load() can map. The file is a
+     * header (magic, version, width, height, pattern size and tiles as ints)
+     * followed by the table.
+     *
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     */
+    public void save(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.width);
+            out.writeInt(this.height);
+            out.writeInt(this.tiles.length);
+            for (int tile : this.tiles)
+            {
+                out.writeInt(tile);
+            }
+            ByteBuffer data = this.table.duplicate();
+            data.clear();
+            byte[] chunk = new byte[1 << 16];
+            while (data.hasRemaining())
+            {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Maps a database written by save(). Only the header is read, the table
+     * is paged in by the operating system as it is used.
+     *
+     * @param file The file to map
+     * @return The database
+     * @throws IOException If the file can't be read or isn't a pattern
+     * database
+     */
+    public static PatternDatabase load(File file) throws IOException
+    {
+        int width, height;
+        int[] tiles;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException(file + " isn't a pattern database");
+            }
+            width = in.readInt();
+            height = in.readInt();
+            tiles = new int[in.readInt()];
+            for (int i = 0; i < tiles.length; ++i)
+            {
+                tiles[i] = in.readInt();
+            }
+        }
+        int header = 4 * (5 + tiles.length);
+        long length = (entries(width * height, tiles.length) + 1) / 2;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() != header + length)
+            {
+                throw new IOException(file + " is the wrong size");
+            }
+            //The mapping stays valid after the channel is closed
+            return new PatternDatabase(width, height, tiles,
+                    channel.map(FileChannel.MapMode.READ_ONLY, header, length));
+        }
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * @return A copy of the tiles in the pattern
+     */
+    public int[] getTiles()
+    {
+        return this.tiles.clone();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.width + "x" + this.height + " pattern " + Arrays.toString(this.tiles);
+    }
+}
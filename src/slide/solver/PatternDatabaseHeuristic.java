@@ -0,0 +1,64 @@
+package slide.solver;
+
+import slide.Board;
+
+/**
+ * The heuristic made by an AdditivePatternDatabase. A move only changes the
+ * cost of the pattern the moving tile is in, so local() only looks that one
+ * pattern up.
+ *
+ * @author Griffin
+ */
+class PatternDatabaseHeuristic extends ManhattanHeuristic
+{
+
+    /**
+     * The databases, shared with the AdditivePatternDatabase.
+     */
+    private final PatternDatabase[] databases;
+
+    /**
+     * Which database each tile is in, or -1 for tiles that aren't in one.
+     */
+    private final int[] owner;
+
+    PatternDatabaseHeuristic(int width, int height, PatternDatabase[] databases, int[] owner)
+    {
+        super(width, height);
+        this.databases = databases;
+        this.owner = owner;
+    }
+
+    @Override
+    public int estimate(int[] cells, int[] positions)
+    {
+        int rtnval = 0;
+        for (PatternDatabase database : this.databases)
+        {
+            rtnval += database.value(positions);
+        }
+        for (int tile = 1; tile < cells.length; ++tile)
+        {
+            if (this.owner[tile] == -1)
+            {
+                rtnval += distance(tile, positions[tile]);
+            }
+        }
+        return rtnval;
+    }
+
+    @Override
+    public int local(int[] cells, int[] positions, int a, int b)
+    {
+        int tile = cells[a] != Board.BLANK ? cells[a] : cells[b];
+        int rtnval;
+        if (this.owner[tile] != -1)
+        {
+            rtnval = this.databases[this.owner[tile]].value(positions);
+        } else
+        {
+            rtnval = distance(tile, positions[tile]);
+        }
+        return rtnval;
+    }
+}
@@ -0,0 +1,235 @@
+package slide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import slide.Board;
+
+/**
+ * Makes puzzles by random walks from the solved board, which gives some
+ * control over how hard they are where Board.shuffle() doesn't. The walk
+ * length is an upper bound on the solution length, and boards can also be
+ * kept only if a heuristic estimate falls in a band. Every board has its own
+ * seed worked out from the batch seed and its index, so a batch comes out the
+ * same no matter how many threads make it.
+ *
+ * Running this class makes a batch and prints the throughput, e.g.
+ * java slide.solver.PuzzleGenerator 4 4 1000000 80 40 60
+ *
+ * @author Griffin
+ */
+public class PuzzleGenerator
+{
+
+    /**
+     * How many walks are tried for one board before giving up on the band.
+     */
+    private static final int ATTEMPTS = 1000;
+
+    /**
+     * How many moves each walk makes.
+     */
+    private final int steps;
+
+    /**
+     * Makes the heuristic the band is checked with, or null for no band.
+     */
+    private final HeuristicFactory heuristics;
+
+    /**
+     * The lowest estimate a board can have to be kept.
+     */
+    private final int minimum;
+
+    /**
+     * The highest estimate a board can have to be kept.
+     */
+    private final int maximum;
+
+    /**
+     * Makes a generator that keeps every board that isn't solved.
+     *
+     * @param steps How many moves each walk makes
+     */
+    public PuzzleGenerator(int steps)
+    {
+        this(steps, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes a generator that only keeps boards whose estimate is in a band.
+     *
+     * @param steps How many moves each walk makes
+     * @param heuristics Makes the heuristic the boards are estimated with
+     * @param minimum The lowest estimate kept
+     * @param maximum The highest estimate kept
+     */
+    public PuzzleGenerator(int steps, HeuristicFactory heuristics, int minimum, int maximum)
+    {
+        if (steps < 1 || minimum > maximum)
+        {
+            throw new IllegalArgumentException("Bad walk length or band");
+        }
+        this.steps = steps;
+        this.heuristics = heuristics;
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Makes one board. The same seed always gives the same board.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param seed The seed for the board
+     * @return The board, with no turns
+     * @throws IllegalStateException If no walk lands in the band
+     */
+    public Board generate(int width, int height, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Heuristic heuristic = this.heuristics != null ? this.heuristics.create(width, height) : null;
+        int[] cells = heuristic != null ? new int[width * height] : null;
+        int[] positions = heuristic != null ? new int[width * height] : null;
+        Board rtnval = null;
+        for (int attempt = 0; rtnval == null && attempt < ATTEMPTS; ++attempt)
+        {
+            Board board = new Board(width, height);
+            board.randomWalk(this.steps, random::nextInt);
+            if (!board.checkSolved() && inBand(board, heuristic, cells, positions))
+            {
+                rtnval = board;
+            }
+        }
+        if (rtnval == null)
+        {
+            throw new IllegalStateException("No walk of " + this.steps + " moves landed in the band after "
+                    + ATTEMPTS + " tries");
+        }
+        return rtnval;
+    }
+
+    /**
+     * Makes a batch of boards on a pool. Board i is the same as
+     * generate(width, height, seed(seed, i)).
+     *
+     * @param width The width of the boards
+     * @param height The height of the boards
+     * @param seed The seed for the batch
+     * @param count How many boards to make
+     * @param pool The pool to run on, which isn't shut down by this method
+     * @return The boards, in index order
+     */
+    public List<Board> generate(int width, int height, long seed, int count, ForkJoinPool pool)
+    {
+        return pool.submit(() -> IntStream.range(0, count).parallel()
+                .mapToObj(i -> generate(width, height, seed(seed, i)))
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Works out the seed of one board in a batch. Neighbouring indices give
+     * unrelated seeds, so boards in a batch don't share walks.
+     *
+     * @param seed The seed for the batch
+     * @param index The index of the board in the batch
+     * @return The seed for that board
+     */
+    public static long seed(long seed, int index)
+    {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Checks if a board's estimate is in the band.
+     *
+     * @param board The board
+     * @param heuristic The heuristic, or null for no band
+     * @param cells Scratch space for the tiles
+     * @param positions Scratch space for where each tile is
+     * @return True if there is no band or the estimate is in it
+     */
+    private boolean inBand(Board board, Heuristic heuristic, int[] cells, int[] positions)
+    {
+        boolean rtnbool = true;
+        if (heuristic != null)
+        {
+            int estimate = estimate(board, heuristic, cells, positions);
+            rtnbool = estimate >= this.minimum && estimate <= this.maximum;
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Estimates how many moves a board is from solved.
+     *
+     * @param board The board
+     * @param heuristic The heuristic
+     * @param cells Scratch space for the tiles
+     * @param positions Scratch space for where each tile is
+     * @return The estimate
+     */
+    private static int estimate(Board board, Heuristic heuristic, int[] cells, int[] positions)
+    {
+        int width = board.getWidth();
+        for (int k = 0; k < cells.length; ++k)
+        {
+            cells[k] = board.getTile(k % width, k / width);
+            positions[cells[k]] = k;
+        }
+        return heuristic.estimate(cells, positions);
+    }
+
+    /**
+     * Makes a batch of boards and prints how long it took and the spread of
+     * their estimates.
+     *
+     * @param args The width, height, number of boards and walk length,
+     * optionally the lowest and highest estimate kept, the number of threads
+     * (all cores by default) and a directory of pattern databases
+     * @throws IOException If the pattern databases can't be mapped
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 4)
+        {
+            System.out.println("Usage: PuzzleGenerator <width> <height> <count> <steps> [min max] [threads]"
+                    + " [pattern database directory]");
+            return;
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int count = Integer.parseInt(args[2]);
+        int steps = Integer.parseInt(args[3]);
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        HeuristicFactory heuristics = args.length > 7
+                ? BatchSolver.patternDatabases(new File(args[7]))
+                : LinearConflictHeuristic::new;
+        PuzzleGenerator generator = args.length > 5
+                ? new PuzzleGenerator(steps, heuristics, Integer.parseInt(args[4]), Integer.parseInt(args[5]))
+                : new PuzzleGenerator(steps);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Board> boards = generator.generate(width, height, System.nanoTime(), count, pool);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+        pool.shutdown();
+        Heuristic heuristic = heuristics.create(width, height);
+        int[] cells = new int[width * height];
+        int[] positions = new int[width * height];
+        IntSummaryStatistics spread = boards.stream()
+                .mapToInt(board -> estimate(board, heuristic, cells, positions))
+                .summaryStatistics();
+        System.out.println("Made " + boards.size() + " boards in " + millis + "ms on " + threads + " threads, "
+                + (boards.size() * 60000L / millis) + " a minute");
+        System.out.println("Estimates from " + spread.getMin() + " to " + spread.getMax() + ", "
+                + String.format("%.1f", spread.getAverage()) + " on average");
+    }
+}
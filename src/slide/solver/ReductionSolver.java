@@ -0,0 +1,560 @@
+package slide.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Solves boards of any size quickly, but not in the fewest moves, the way a
+ * person would. It solves the top row or the left column, whichever leaves
+ * the board closer to square, and then solves what is left of the board the
+ * same way, until only a 2x2 corner is left, which is solved by turning the
+ * blank around it.
+ *
+ * Every tile is walked to its cell one step at a time, moving the blank
+ * around it along a short route, so a tile costs moves in proportion to how
+ * far it travels and a board with sides of n takes O(n^3) moves and time.
+ * The only memory used is a few arrays the size of the board, and the moves
+ * can be handed to a Consumer as they are made instead of being collected.
+ *
+ * A solver keeps no state between calls, so one can be shared by many
+ * threads.
+ *
+ * @author Griffin
+ */
+public class ReductionSolver implements Solver
+{
+
+    @Override
+    public List<Move> solve(Board board)
+    {
+        List<Move> rtnval = new ArrayList<>();
+        solve(board, rtnval::add);
+        return rtnval;
+    }
+
+    /**
+     * Solves a board, handing each move to sink as soon as it is made. The
+     * board isn't changed.
+     *
+     * @param board The board to solve
+     * @param sink Receives the moves in order
+     * @throws IllegalArgumentException If the board can't be solved or is
+     * narrower than 2 in either direction
+     */
+    public void solve(Board board, Consumer<Move> sink)
+    {
+        int width = board.getWidth();
+        solvePacked(board, move -> sink.accept(Move.unpack(move, width)));
+    }
+
+    @Override
+    public int[] solvePacked(Board board)
+    {
+        IntStream.Builder rtnval = IntStream.builder();
+        solvePacked(board, rtnval::add);
+        return rtnval.build().toArray();
+    }
+
+    /**
+     * Solves a board, handing each move to sink as a packed move (see Move)
+     * as soon as it is made, so no objects are made per move. The board isn't
+     * changed.
+     *
+     * @param board The board to solve
+     * @param sink Receives the moves in order
+     * @throws IllegalArgumentException If the board can't be solved or is
+     * narrower than 2 in either direction
+     */
+    public void solvePacked(Board board, IntConsumer sink)
+    {
+        if (board.getWidth() < 2 || board.getHeight() < 2)
+        {
+            throw new IllegalArgumentException("Boards narrower than 2 can't be solved");
+        }
+        if (!board.checkSolvable())
+        {
+            throw new IllegalArgumentException("The board can't be solved");
+        }
+        new Reduction(board, sink).run();
+    }
+
+    /**
+     * The state of one solve.
+     */
+    private static class Reduction
+    {
+
+        private final int width, height;
+
+        /**
+         * The tiles, and the index of every tile (positions[0] is the blank).
+         */
+        private final int[] cells, positions;
+
+        /**
+         * Cells the blank may not pass through: every solved cell, plus
+         * whatever tiles are being held in place.
+         */
+        private final boolean[] fixed;
+
+        /**
+         * Scratch space for finding routes: the queue, where each cell was
+         * reached from, and which search last reached it.
+         */
+        private int[] queue, parent, stamp;
+
+        /**
+         * Counts searches so stamp never has to be cleared.
+         */
+        private int generation;
+
+        /**
+         * The top row and left column of the part that isn't solved yet.
+         */
+        private int top, left;
+
+        private final IntConsumer sink;
+
+        Reduction(Board board, IntConsumer sink)
+        {
+            this.width = board.getWidth();
+            this.height = board.getHeight();
+            this.cells = new int[this.width * this.height];
+            this.positions = new int[this.cells.length];
+            for (int k = 0; k < this.cells.length; ++k)
+            {
+                this.cells[k] = board.getTile(k % this.width, k / this.width);
+                this.positions[this.cells[k]] = k;
+            }
+            this.fixed = new boolean[this.cells.length];
+            this.sink = sink;
+        }
+
+        void run()
+        {
+            while (this.height - this.top > 2 || this.width - this.left > 2)
+            {
+                if (this.height - this.top > 2 && this.height - this.top >= this.width - this.left)
+                {
+                    solveRow();
+                } else
+                {
+                    solveColumn();
+                }
+            }
+            solveCorner();
+        }
+
+        private int cell(int x, int y)
+        {
+            return y * this.width + x;
+        }
+
+        /**
+         * Solves the top row of the unsolved part. All but the last two tiles
+         * are walked straight home, then finishLine() puts in the last two.
+         */
+        private void solveRow()
+        {
+            int y = this.top;
+            for (int x = this.left; x < this.width - 2; ++x)
+            {
+                moveTile(cell(x, y) + 1, cell(x, y));
+                this.fixed[cell(x, y)] = true;
+            }
+            finishLine(cell(this.width - 2, y), cell(this.width - 1, y),
+                    Math.max(this.left, this.width - 3), y, this.width - 1, y + 2);
+            ++this.top;
+        }
+
+        /**
+         * Solves the left column of the unsolved part, the same way as
+         * solveRow() but turned on its side.
+         */
+        private void solveColumn()
+        {
+            int x = this.left;
+            for (int y = this.top; y < this.height - 2; ++y)
+            {
+                moveTile(cell(x, y) + 1, cell(x, y));
+                this.fixed[cell(x, y)] = true;
+            }
+            finishLine(cell(x, this.height - 2), cell(x, this.height - 1),
+                    x, Math.max(this.top, this.height - 3), x + 2, this.height - 1);
+            ++this.left;
+        }
+
+        /**
+         * Puts the last two tiles of a row or column home. Walking them home
+         * one after the other doesn't work, since the first one home leaves
+         * no way in for the second, and holding tiles in place near the
+         * corner can wall the blank in. Instead the first tile is walked
+         * home, the second is walked until it is inside a small window around
+         * the corner, the blank is brought into the window, and the window is
+         * solved by a breadth first search over where the two tiles and the
+         * blank are, treating every other tile in it as the same.
+         *
+         * @param a The home of the first tile
+         * @param b The home of the second tile
+         * @param x1 The left of the window
+         * @param y1 The top of the window
+         * @param x2 The right of the window
+         * @param y2 The bottom of the window
+         */
+        private void finishLine(int a, int b, int x1, int y1, int x2, int y2)
+        {
+            //The cells of the window that aren't solved, and their indexes
+            int[] window = new int[(x2 - x1 + 1) * (y2 - y1 + 1)];
+            int size = 0;
+            for (int y = y1; y <= y2; ++y)
+            {
+                for (int x = x1; x <= x2; ++x)
+                {
+                    if (!this.fixed[cell(x, y)])
+                    {
+                        window[size++] = cell(x, y);
+                    }
+                }
+            }
+            moveTile(a + 1, a);
+            this.fixed[a] = true;
+            int p;
+            while (indexOf(window, size, p = this.positions[b + 1]) == -1)
+            {
+                step(b + 1, p, b);
+            }
+            this.fixed[p] = true;
+            int blank = this.positions[Board.BLANK];
+            for (int w = 0; w < size && indexOf(window, size, blank) == -1; ++w)
+            {
+                if (!this.fixed[window[w]] && search(blank, window[w], 0, 0, this.width - 1, this.height - 1))
+                {
+                    blank = window[w];
+                }
+            }
+            this.fixed[a] = false;
+            this.fixed[p] = false;
+            int[] route = solveWindow(window, size, a, b);
+            for (int w = 0; w < route.length; ++w)
+            {
+                slide(route[w]);
+            }
+            this.fixed[a] = true;
+            this.fixed[b] = true;
+        }
+
+        private static int indexOf(int[] window, int size, int cell)
+        {
+            int rtnval = -1;
+            for (int w = 0; w < size && rtnval == -1; ++w)
+            {
+                if (window[w] == cell)
+                {
+                    rtnval = w;
+                }
+            }
+            return rtnval;
+        }
+
+        /**
+         * Finds the shortest blank route inside the window that puts the
+         * tiles a + 1 and b + 1 home. A state is the window index of the first
+         * tile, the second tile and the blank, so there are at most 9^3.
+         *
+         * @return The cells the blank moves through, in order
+         */
+        private int[] solveWindow(int[] window, int size, int a, int b)
+        {
+            int states = size * size * size;
+            int[] from = new int[states];
+            Arrays.fill(from, -1);
+            int[] order = new int[states];
+            int start = (indexOf(window, size, this.positions[a + 1]) * size
+                    + indexOf(window, size, this.positions[b + 1])) * size
+                    + indexOf(window, size, this.positions[Board.BLANK]);
+            int goalA = indexOf(window, size, a);
+            int goalB = indexOf(window, size, b);
+            int head = 0;
+            int tail = 0;
+            order[tail++] = start;
+            from[start] = start;
+            int found = -1;
+            while (head < tail && found == -1)
+            {
+                int state = order[head++];
+                int z = state % size;
+                int tb = state / size % size;
+                int ta = state / size / size;
+                if (ta == goalA && tb == goalB)
+                {
+                    found = state;
+                    break;
+                }
+                for (int n = 0; n < size; ++n)
+                {
+                    int d = Math.abs(window[n] - window[z]);
+                    boolean adjacent = d == this.width
+                            || (d == 1 && window[n] / this.width == window[z] / this.width);
+                    if (adjacent)
+                    {
+                        int na = ta == n ? z : ta;
+                        int nb = tb == n ? z : tb;
+                        int next = (na * size + nb) * size + n;
+                        if (from[next] == -1)
+                        {
+                            from[next] = state;
+                            order[tail++] = next;
+                        }
+                    }
+                }
+            }
+            if (found == -1)
+            {
+                throw new IllegalStateException("The last two tiles can't be put home");
+            }
+            int length = 0;
+            for (int state = found; state != start; state = from[state])
+            {
+                ++length;
+            }
+            int[] rtnval = new int[length];
+            for (int state = found; state != start; state = from[state])
+            {
+                rtnval[--length] = window[state % size];
+            }
+            return rtnval;
+        }
+
+        /**
+         * Turns the blank clockwise around the last 2x2 until it is solved.
+         * Every arrangement of a solvable 2x2 is reached within 12 moves.
+         */
+        private void solveCorner()
+        {
+            int[] ring =
+            {
+                cell(this.left, this.top), cell(this.left + 1, this.top),
+                cell(this.left + 1, this.top + 1), cell(this.left, this.top + 1)
+            };
+            int turn = 0;
+            while (ring[turn % 4] != this.positions[Board.BLANK])
+            {
+                ++turn;
+            }
+            for (int moves = 0; !cornerSolved(ring); ++moves)
+            {
+                if (moves == 12)
+                {
+                    throw new IllegalStateException("The last 2x2 can't be solved");
+                }
+                ++turn;
+                slide(ring[turn % 4]);
+            }
+        }
+
+        private boolean cornerSolved(int[] ring)
+        {
+            return this.cells[ring[0]] == ring[0] + 1
+                    && this.cells[ring[1]] == ring[1] + 1
+                    && this.cells[ring[3]] == ring[3] + 1;
+        }
+
+        /**
+         * Walks a tile to a cell one step at a time. For each step the tile is
+         * held in place while the blank is routed to the cell in front of it,
+         * then the tile slides into the blank.
+         *
+         * @param tile The tile to move
+         * @param dest The cell to move it to
+         */
+        private void moveTile(int tile, int dest)
+        {
+            int p;
+            while ((p = this.positions[tile]) != dest)
+            {
+                step(tile, p, dest);
+            }
+        }
+
+        /**
+         * Moves a tile one cell closer to a destination, across first if it
+         * can, by holding it while the blank is routed in front of it.
+         *
+         * @param tile The tile to move
+         * @param p Where the tile is
+         * @param dest Where the tile is going
+         */
+        private void step(int tile, int p, int dest)
+        {
+            int dx = dest % this.width;
+            int dy = dest / this.width;
+            int px = p % this.width;
+            int py = p / this.width;
+            int next;
+            if (px != dx && !this.fixed[p + Integer.signum(dx - px)])
+            {
+                next = p + Integer.signum(dx - px);
+            } else if (py != dy && !this.fixed[p + Integer.signum(dy - py) * this.width])
+            {
+                next = p + Integer.signum(dy - py) * this.width;
+            } else
+            {
+                throw new IllegalStateException("Tile " + tile + " is boxed in");
+            }
+            this.fixed[p] = true;
+            routeBlank(next);
+            this.fixed[p] = false;
+            slide(p);
+        }
+
+        /**
+         * Moves the blank to a cell without passing through a fixed one. The
+         * two L shaped routes are tried first, since they are free almost
+         * every time. If both are blocked the shortest route is searched for
+         * near the two cells, and only then over the whole board.
+         *
+         * @param dest The cell to move the blank to
+         */
+        private void routeBlank(int dest)
+        {
+            int start = this.positions[Board.BLANK];
+            if (start == dest)
+            {
+                return;
+            }
+            int sx = start % this.width;
+            int sy = start / this.width;
+            int dx = dest % this.width;
+            int dy = dest / this.width;
+            if (clear(sx, sy, dx, sy) && clear(dx, sy, dx, dy))
+            {
+                walk(sx, sy, dx, sy);
+                walk(dx, sy, dx, dy);
+            } else if (clear(sx, sy, sx, dy) && clear(sx, dy, dx, dy))
+            {
+                walk(sx, sy, sx, dy);
+                walk(sx, dy, dx, dy);
+            } else if (!search(start, dest, Math.min(sx, dx) - 2, Math.min(sy, dy) - 2,
+                    Math.max(sx, dx) + 2, Math.max(sy, dy) + 2)
+                    && !search(start, dest, 0, 0, this.width - 1, this.height - 1))
+            {
+                throw new IllegalStateException("The blank can't reach " + dest);
+            }
+        }
+
+        /**
+         * Checks that every cell on a straight line, except the first, isn't
+         * fixed.
+         */
+        private boolean clear(int x1, int y1, int x2, int y2)
+        {
+            boolean rtnbool = true;
+            int step = x1 != x2 ? Integer.signum(x2 - x1) : Integer.signum(y2 - y1) * this.width;
+            int end = cell(x2, y2);
+            for (int k = cell(x1, y1); k != end && rtnbool; )
+            {
+                k += step;
+                rtnbool = !this.fixed[k];
+            }
+            return rtnbool;
+        }
+
+        /**
+         * Moves the blank along a straight line.
+         */
+        private void walk(int x1, int y1, int x2, int y2)
+        {
+            int step = x1 != x2 ? Integer.signum(x2 - x1) : Integer.signum(y2 - y1) * this.width;
+            int end = cell(x2, y2);
+            for (int k = cell(x1, y1); k != end; )
+            {
+                k += step;
+                slide(k);
+            }
+        }
+
+        /**
+         * Breadth first searches for the blank's shortest route to a cell
+         * inside a rectangle, and moves it along the route if there is one.
+         *
+         * @return True if the blank was moved, false if there is no route
+         */
+        private boolean search(int start, int dest, int x1, int y1, int x2, int y2)
+        {
+            if (this.queue == null)
+            {
+                this.queue = new int[this.cells.length];
+                this.parent = new int[this.cells.length];
+                this.stamp = new int[this.cells.length];
+            }
+            x1 = Math.max(x1, 0);
+            y1 = Math.max(y1, 0);
+            x2 = Math.min(x2, this.width - 1);
+            y2 = Math.min(y2, this.height - 1);
+            int mark = ++this.generation;
+            int head = 0;
+            int tail = 0;
+            this.queue[tail++] = start;
+            this.stamp[start] = mark;
+            while (head < tail && this.stamp[dest] != mark)
+            {
+                int k = this.queue[head++];
+                int x = k % this.width;
+                int y = k / this.width;
+                int[] next =
+                {
+                    y > y1 ? k - this.width : -1,
+                    x < x2 ? k + 1 : -1,
+                    y < y2 ? k + this.width : -1,
+                    x > x1 ? k - 1 : -1
+                };
+                for (int n : next)
+                {
+                    if (n != -1 && this.stamp[n] != mark && !this.fixed[n])
+                    {
+                        this.stamp[n] = mark;
+                        this.parent[n] = k;
+                        this.queue[tail++] = n;
+                    }
+                }
+            }
+            boolean rtnbool = this.stamp[dest] == mark;
+            if (rtnbool)
+            {
+                //Walk back from dest, then replay the route forwards
+                int length = 0;
+                for (int k = dest; k != start; k = this.parent[k])
+                {
+                    this.queue[length++] = k;
+                }
+                while (length > 0)
+                {
+                    slide(this.queue[--length]);
+                }
+            }
+            return rtnbool;
+        }
+
+        /**
+         * Slides the tile at target into the blank and reports the move.
+         *
+         * @param target A cell next to the blank
+         */
+        private void slide(int target)
+        {
+            int blank = this.positions[Board.BLANK];
+            int tile = this.cells[target];
+            this.cells[blank] = tile;
+            this.cells[target] = Board.BLANK;
+            this.positions[tile] = blank;
+            this.positions[Board.BLANK] = target;
+            this.sink.accept(Move.pack(blank, target, this.width));
+        }
+    }
+}
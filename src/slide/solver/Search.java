@@ -0,0 +1,522 @@
+package slide.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import slide.Board;
+import slide.Move;
+
+/**
+ * The state of one depth first search over a board. The board is copied into
+ * primitive arrays and moves are made and unmade in place, updating the
+ * heuristic estimate as they go, so no objects are made while searching. A
+ * Search belongs to one thread.
+ *
+ * @author Griffin
+ */
+class Search
+{
+
+    /**
+     * Returned by dfs() when the board has been solved.
+     */
+    static final int FOUND = -1;
+
+    /**
+     * Returned by dfs() when the search was told to stop.
+     */
+    static final int STOPPED = -2;
+
+    /**
+     * The stop flag and budget are only checked once every this many nodes
+     * (plus one), so checking them costs next to nothing.
+     */
+    private static final int CHECK_MASK = 0xFFF;
+
+    /**
+     * When watched, one swap in every this many (plus one) times the
+     * heuristic, and the time is scaled up to stand for all of them.
+     */
+    private static final int SAMPLE_MASK = 0x3FF;
+
+    /**
+     * How many times a sampled swap calls the heuristic, to time it.
+     */
+    private static final int SAMPLE_REPEATS = 32;
+
+    /**
+     * The width and height of the board.
+     */
+    final int width, height;
+
+    /**
+     * The tiles, left to right and top to bottom, and the index of every tile
+     * in cells (positions[0] is the blank).
+     */
+    final int[] cells, positions;
+
+    /**
+     * The heuristic, which is only used by this search.
+     */
+    final Heuristic heuristic;
+
+    /**
+     * The running heuristic estimate of cells.
+     */
+    int estimate;
+
+    /**
+     * How many moves have been made from the starting board.
+     */
+    int depth;
+
+    /**
+     * The index of the blank after every move made so far. path[0] is where
+     * the blank started and path[depth] is where it is now.
+     */
+    int[] path;
+
+    /**
+     * How many nodes dfs() has visited.
+     */
+    long nodes;
+
+    /**
+     * How many times deepen() has started a search. Every other node was
+     * generated as the child of one, so generated() doesn't need a counter.
+     */
+    long roots;
+
+    /**
+     * How many nodes have had their children generated, only counted while
+     * watched.
+     */
+    long expanded;
+
+    /**
+     * Whether something is listening. If so, deepen() counts expanded nodes
+     * and the heuristic is sampled to time it. An unwatched search pays one
+     * branch per iteration to skip the counting and one per swap to skip the
+     * clock.
+     */
+    boolean watched;
+
+    /**
+     * How many swaps have been made while watched.
+     */
+    private long swaps;
+
+    /**
+     * About how long the heuristic has taken, from the sampled swaps.
+     */
+    long heuristicNanos;
+
+    /**
+     * When set, dfs() gives up and returns STOPPED. Null if nothing can stop
+     * this search.
+     */
+    AtomicBoolean stop;
+
+    /**
+     * The limits on this search, checked along with stop, or null. A search
+     * with a budget also stops when its thread is interrupted.
+     */
+    Budget budget;
+
+    /**
+     * When the budget started being spent, from System.nanoTime().
+     */
+    long started;
+
+    /**
+     * Copies a board into a new search.
+     *
+     * @param board The board to start from
+     * @param heuristic The heuristic to use, which must be for this size
+     */
+    Search(Board board, Heuristic heuristic)
+    {
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.cells = new int[this.width * this.height];
+        this.positions = new int[this.cells.length];
+        for (int k = 0; k < this.cells.length; ++k)
+        {
+            this.cells[k] = board.getTile(k % this.width, k / this.width);
+            this.positions[this.cells[k]] = k;
+        }
+        this.heuristic = heuristic;
+        this.estimate = heuristic.estimate(this.cells, this.positions);
+        this.path = new int[64];
+        this.path[0] = this.positions[Board.BLANK];
+    }
+
+    /**
+     * Makes sure path can hold a search bounded to this many moves. This is
+     * the only place a search allocates, and only between iterations.
+     *
+     * @param bound The most moves the next iteration can make
+     */
+    void reserve(int bound)
+    {
+        if (this.path.length <= bound + 1)
+        {
+            this.path = Arrays.copyOf(this.path, Math.max(bound + 2, this.path.length * 2));
+        }
+    }
+
+    /**
+     * Slides the tile at target into the blank.
+     *
+     * @param target A cell next to the blank
+     */
+    void move(int target)
+    {
+        swap(target);
+        this.path[++this.depth] = target;
+    }
+
+    /**
+     * Takes back the most recent move.
+     */
+    void unmove()
+    {
+        swap(this.path[--this.depth]);
+    }
+
+    /**
+     * Moves the blank into a neighbouring cell, keeping positions and
+     * estimate up to date.
+     *
+     * @param target A cell next to the blank
+     */
+    private void swap(int target)
+    {
+        if (this.watched && (++this.swaps & SAMPLE_MASK) == 0)
+        {
+            timedSwap(target);
+            return;
+        }
+        int blank = this.positions[Board.BLANK];
+        this.estimate -= this.heuristic.local(this.cells, this.positions, blank, target);
+        int tile = this.cells[target];
+        this.cells[blank] = tile;
+        this.cells[target] = Board.BLANK;
+        this.positions[tile] = blank;
+        this.positions[Board.BLANK] = target;
+        this.estimate += this.heuristic.local(this.cells, this.positions, blank, target);
+    }
+
+    /**
+     * Does what swap() does, adding an estimate of how long the heuristic
+     * took to heuristicNanos. One call is too quick to time on its own, so
+     * each is repeated SAMPLE_REPEATS times and the time divided out, then
+     * scaled up by the sampling rate.
+     *
+     * @param target A cell next to the blank
+     */
+    private void timedSwap(int target)
+    {
+        int blank = this.positions[Board.BLANK];
+        long start = System.nanoTime();
+        int part = 0;
+        for (int i = 0; i < SAMPLE_REPEATS; ++i)
+        {
+            part += this.heuristic.local(this.cells, this.positions, blank, target);
+        }
+        this.estimate -= part / SAMPLE_REPEATS;
+        long nanos = System.nanoTime() - start;
+        int tile = this.cells[target];
+        this.cells[blank] = tile;
+        this.cells[target] = Board.BLANK;
+        this.positions[tile] = blank;
+        this.positions[Board.BLANK] = target;
+        start = System.nanoTime();
+        part = 0;
+        for (int i = 0; i < SAMPLE_REPEATS; ++i)
+        {
+            part += this.heuristic.local(this.cells, this.positions, blank, target);
+        }
+        this.estimate += part / SAMPLE_REPEATS;
+        nanos += System.nanoTime() - start;
+        this.heuristicNanos += nanos * (SAMPLE_MASK + 1) / SAMPLE_REPEATS;
+    }
+
+    /**
+     * Searches every move sequence from here whose depth plus estimate stays
+     * within bound, never moving the blank straight back where it came from.
+     * If a solution is found, or the search is stopped, it is left where it
+     * was with the moves in path.
+     *
+     * @param bound The most moves a solution may take
+     * @return FOUND, STOPPED, or the smallest depth plus estimate that went
+     * over bound, which is Integer.MAX_VALUE if every move sequence from here
+     * runs into a dead end first
+     */
+    int dfs(int bound)
+    {
+        if ((++this.nodes & CHECK_MASK) == 0 && stopped())
+        {
+            return STOPPED;
+        }
+        int f = this.depth + this.estimate;
+        if (f > bound)
+        {
+            return f;
+        }
+        if (this.estimate == 0)
+        {
+            return FOUND;
+        }
+        int rtnval = Integer.MAX_VALUE;
+        int blank = this.positions[Board.BLANK];
+        int previous = this.depth > 0 ? this.path[this.depth - 1] : -1;
+        int x = blank % this.width;
+        int y = blank / this.width;
+        for (int dir = 0; dir < 4; ++dir)
+        {
+            int target = neighbour(blank, x, y, dir);
+            if (target != -1 && target != previous)
+            {
+                move(target);
+                int t = dfs(bound);
+                if (t == FOUND || t == STOPPED)
+                {
+                    return t;
+                }
+                unmove();
+                if (t < rtnval)
+                {
+                    rtnval = t;
+                }
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Does what dfs() does, also counting expanded nodes. It is a copy so that
+     * an unwatched search doesn't pay for the count on every node.
+     *
+     * @param bound The most moves a solution may take
+     * @return The same as dfs()
+     */
+    private int watchedDfs(int bound)
+    {
+        if ((++this.nodes & CHECK_MASK) == 0 && stopped())
+        {
+            return STOPPED;
+        }
+        int f = this.depth + this.estimate;
+        if (f > bound)
+        {
+            return f;
+        }
+        if (this.estimate == 0)
+        {
+            return FOUND;
+        }
+        ++this.expanded;
+        int rtnval = Integer.MAX_VALUE;
+        int blank = this.positions[Board.BLANK];
+        int previous = this.depth > 0 ? this.path[this.depth - 1] : -1;
+        int x = blank % this.width;
+        int y = blank / this.width;
+        for (int dir = 0; dir < 4; ++dir)
+        {
+            int target = neighbour(blank, x, y, dir);
+            if (target != -1 && target != previous)
+            {
+                move(target);
+                int t = watchedDfs(bound);
+                if (t == FOUND || t == STOPPED)
+                {
+                    return t;
+                }
+                unmove();
+                if (t < rtnval)
+                {
+                    rtnval = t;
+                }
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Runs one iteration of depth first search from the current board, the
+     * way dfs() does, choosing once whether to count expanded nodes.
+     *
+     * @param bound The most moves a solution may take
+     * @return The same as dfs()
+     */
+    int deepen(int bound)
+    {
+        ++this.roots;
+        return this.watched ? watchedDfs(bound) : dfs(bound);
+    }
+
+    /**
+     * @return How many nodes dfs() has generated as the children of others
+     */
+    long generated()
+    {
+        return this.nodes - this.roots;
+    }
+
+    /**
+     * Checks whether the search has been told to stop or has run out of
+     * budget. Only called once every few thousand nodes, so a node limit can
+     * be overshot by that many.
+     *
+     * @return True if the search should stop
+     */
+    private boolean stopped()
+    {
+        boolean rtnbool = this.stop != null && this.stop.get();
+        if (!rtnbool && this.budget != null)
+        {
+            rtnbool = this.nodes >= this.budget.getNodes() || bytes() > this.budget.getBytes()
+                    || this.budget.expired(this.started) || Thread.currentThread().isInterrupted();
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Finds the cell next to the blank in a direction. The directions are 0
+     * up, 1 right, 2 down and 3 left.
+     *
+     * @param blank The index of the blank
+     * @param x The column of the blank
+     * @param y The row of the blank
+     * @param dir The direction
+     * @return The index of the neighbour, or -1 if it is off the board
+     */
+    int neighbour(int blank, int x, int y, int dir)
+    {
+        int rtnval = -1;
+        switch (dir)
+        {
+            case 0:
+                if (y > 0)
+                {
+                    rtnval = blank - this.width;
+                }
+                break;
+            case 1:
+                if (x < this.width - 1)
+                {
+                    rtnval = blank + 1;
+                }
+                break;
+            case 2:
+                if (y < this.height - 1)
+                {
+                    rtnval = blank + this.width;
+                }
+                break;
+            case 3:
+                if (x > 0)
+                {
+                    rtnval = blank - 1;
+                }
+                break;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Runs iterative deepening from the current board until it is solved.
+     * The bound starts at the estimate and is raised to the smallest cost
+     * that went over it after every failed iteration.
+     *
+     * @param listener Told about every iteration, or null
+     * @return How many iterations there were
+     * @throws IllegalArgumentException If no move sequence goes over the
+     * bound, so no bound would ever find a solution
+     */
+    int iterate(SolverListener listener)
+    {
+        int rtnval = 0;
+        int bound = this.estimate;
+        int t = Integer.MAX_VALUE;
+        while (t != FOUND && t != STOPPED)
+        {
+            reserve(bound);
+            if (listener == null)
+            {
+                t = deepen(bound);
+            } else
+            {
+                long expanded = this.expanded;
+                long generated = generated();
+                long start = System.nanoTime();
+                t = deepen(bound);
+                listener.iteration(bound, this.expanded - expanded, generated() - generated,
+                        System.nanoTime() - start);
+            }
+            ++rtnval;
+            if (t == Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("The board can't be solved");
+            }
+            bound = t;
+        }
+        return rtnval;
+    }
+
+    /**
+     * @return About how many bytes the search holds: its path and its copy
+     * of the board
+     */
+    long bytes()
+    {
+        return 4L * (this.cells.length + this.positions.length + this.path.length);
+    }
+
+    /**
+     * Takes back every move, returning to the starting board.
+     */
+    void rewind()
+    {
+        while (this.depth > 0)
+        {
+            unmove();
+        }
+    }
+
+    /**
+     * Turns path into moves. Each move is written the way Board.queryTile()
+     * writes one: the tile that slid first, then the blank it slid into.
+     *
+     * @return Every move from the start to the current depth
+     */
+    List<Move> moves()
+    {
+        List<Move> rtnval = new ArrayList<>(this.depth);
+        for (int g = 1; g <= this.depth; ++g)
+        {
+            int tile = this.path[g];
+            int blank = this.path[g - 1];
+            rtnval.add(new Move(tile % this.width, tile / this.width,
+                    blank % this.width, blank / this.width));
+        }
+        return rtnval;
+    }
+
+    /**
+     * Turns path into packed moves, see Move.
+     *
+     * @return Every move from the start to the current depth
+     */
+    int[] packedMoves()
+    {
+        int[] rtnval = new int[this.depth];
+        for (int g = 1; g <= this.depth; ++g)
+        {
+            rtnval[g - 1] = Move.pack(this.path[g - 1], this.path[g], this.width);
+        }
+        return rtnval;
+    }
+}
@@ -0,0 +1,46 @@
+package slide.solver;
+
+import java.util.List;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Something that can find a solution for a board.
+ *
+ * @author Griffin
+ */
+public interface Solver
+{
+
+    /**
+     * Finds a solution without changing the board. Each Move is one turn of
+     * the kind Board.queryTile() makes: sliding the tile at (x1, y1) into the
+     * blank at (x2, y2), so the solution can be played back with
+     * queryTile(move.getX1(), move.getY1()).
+     *
+     * @param board The board to solve
+     * @return The moves, in order, or an empty list if it is already solved
+     * @throws IllegalArgumentException If the board can't be solved
+     */
+    List<Move> solve(Board board);
+
+    /**
+     * Finds a solution the same way as solve(), as packed moves (see Move)
+     * instead of Move objects. Solvers that can should override this so no
+     * Move objects are made.
+     *
+     * @param board The board to solve
+     * @return The moves, in order, or an empty array if it is already solved
+     * @throws IllegalArgumentException If the board can't be solved
+     */
+    default int[] solvePacked(Board board)
+    {
+        List<Move> moves = solve(board);
+        int[] rtnval = new int[moves.size()];
+        for (int i = 0; i < rtnval.length; ++i)
+        {
+            rtnval[i] = moves.get(i).pack(board.getWidth(), false);
+        }
+        return rtnval;
+    }
+}
@@ -0,0 +1,35 @@
+package slide.solver;
+
+/**
+ * Gets told how an IDA* solver's runs go, for monitoring. A solver with no
+ * listener skips the counting, timing and reporting entirely. A solver
+ * shared by many threads calls its listener from all of them, so listeners
+ * must be thread safe. SolverMetrics is a listener that
+ * adds runs up and publishes them over JMX.
+ *
+ * @author Griffin
+ */
+public interface SolverListener
+{
+
+    /**
+     * Called after every iteration of iterative deepening.
+     *
+     * @param bound The most moves the iteration allowed
+     * @param expanded How many nodes the iteration expanded
+     * @param generated How many nodes the iteration generated
+     * @param nanos How long the iteration took
+     */
+    default void iteration(int bound, long expanded, long generated, long nanos)
+    {
+    }
+
+    /**
+     * Called once a run has found a solution.
+     *
+     * @param stats The totals for the run
+     */
+    default void finished(SolverStats stats)
+    {
+    }
+}
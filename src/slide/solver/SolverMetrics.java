@@ -0,0 +1,162 @@
+package slide.solver;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A listener that adds up every run of the solvers it is given to, and can
+ * be published as an MBean so the totals show up in JConsole and the like.
+ * Runs only touch it once per iteration and once at the end, and the totals
+ * are striped adders, so one instance can be shared by solvers on many
+ * threads.
+ *
+ * @author Griffin
+ */
+public class SolverMetrics implements SolverListener, SolverMetricsMBean
+{
+
+    /**
+     * Totals over every finished run.
+     */
+    private final LongAdder runs, expanded, generated, iterations, nanos, heuristicNanos;
+
+    /**
+     * The most memory any one run held.
+     */
+    private final LongAccumulator peakBytes;
+
+    public SolverMetrics()
+    {
+        this.runs = new LongAdder();
+        this.expanded = new LongAdder();
+        this.generated = new LongAdder();
+        this.iterations = new LongAdder();
+        this.nanos = new LongAdder();
+        this.heuristicNanos = new LongAdder();
+        this.peakBytes = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server.
+     *
+     * @param name Tells these metrics apart from others, e.g. the solver's
+     * name
+     * @return The name they were published under
+     * @throws JMException If the name is taken or not allowed
+     */
+    public ObjectName register(String name) throws JMException
+    {
+        ObjectName rtnval = new ObjectName("slide.solver:type=SolverMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, rtnval);
+        return rtnval;
+    }
+
+    @Override
+    public void finished(SolverStats stats)
+    {
+        this.runs.increment();
+        this.expanded.add(stats.getExpanded());
+        this.generated.add(stats.getGenerated());
+        this.iterations.add(stats.getIterations());
+        this.nanos.add(stats.getNanos());
+        this.heuristicNanos.add(stats.getHeuristicNanos());
+        this.peakBytes.accumulate(stats.getPeakBytes());
+    }
+
+    @Override
+    public long getRuns()
+    {
+        return this.runs.sum();
+    }
+
+    @Override
+    public long getNodesExpanded()
+    {
+        return this.expanded.sum();
+    }
+
+    @Override
+    public long getNodesGenerated()
+    {
+        return this.generated.sum();
+    }
+
+    /**
+     * @return The average number of children of an expanded node, or 0 if
+     * no node was expanded
+     */
+    @Override
+    public double getBranchingFactor()
+    {
+        long count = getNodesExpanded();
+        return count == 0 ? 0 : (double) getNodesGenerated() / count;
+    }
+
+    @Override
+    public long getIterations()
+    {
+        return this.iterations.sum();
+    }
+
+    @Override
+    public long getSearchMillis()
+    {
+        return this.nanos.sum() / 1000000;
+    }
+
+    /**
+     * @return About how long was spent updating heuristic estimates, worked
+     * out from a sample of the moves
+     */
+    @Override
+    public long getHeuristicMillis()
+    {
+        return this.heuristicNanos.sum() / 1000000;
+    }
+
+    /**
+     * @return How many nodes were generated per second of search, or 0 if
+     * nothing has been searched
+     */
+    @Override
+    public double getNodesPerSecond()
+    {
+        long time = this.nanos.sum();
+        return time == 0 ? 0 : getNodesGenerated() * 1e9 / time;
+    }
+
+    /**
+     * @return The most memory any one run held, in bytes
+     */
+    @Override
+    public long getPeakBytes()
+    {
+        return this.peakBytes.get();
+    }
+
+    /**
+     * Sets every total back to 0. Runs that finish while this is happening
+     * may be partly counted.
+     */
+    @Override
+    public void reset()
+    {
+        this.runs.reset();
+        this.expanded.reset();
+        this.generated.reset();
+        this.iterations.reset();
+        this.nanos.reset();
+        this.heuristicNanos.reset();
+        this.peakBytes.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getRuns() + " runs, " + getIterations() + " iterations, " + getNodesExpanded() + " expanded, "
+                + getNodesGenerated() + " generated, " + getSearchMillis() + "ms";
+    }
+}
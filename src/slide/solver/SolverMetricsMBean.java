@@ -0,0 +1,30 @@
+package slide.solver;
+
+/**
+ * The JMX view of SolverMetrics.
+ *
+ * @author Griffin
+ */
+public interface SolverMetricsMBean
+{
+
+    long getRuns();
+
+    long getNodesExpanded();
+
+    long getNodesGenerated();
+
+    double getBranchingFactor();
+
+    long getIterations();
+
+    long getSearchMillis();
+
+    long getHeuristicMillis();
+
+    double getNodesPerSecond();
+
+    long getPeakBytes();
+
+    void reset();
+}
@@ -0,0 +1,119 @@
+package slide.solver;
+
+/**
+ * The totals for one solver run, given to SolverListener.finished(). Node
+ * counts are added up over every worker of a parallel run.
+ *
+ * @author Griffin
+ */
+public class SolverStats
+{
+
+    /**
+     * How many nodes had their children generated, and how many children
+     * were generated.
+     */
+    private final long expanded, generated;
+
+    /**
+     * How many iterations of iterative deepening there were.
+     */
+    private final int iterations;
+
+    /**
+     * About how long was spent updating the heuristic estimate, worked out
+     * from a sample of the moves.
+     */
+    private final long heuristicNanos;
+
+    /**
+     * How long the run took.
+     */
+    private final long nanos;
+
+    /**
+     * The most memory the searches held, in bytes.
+     */
+    private final long peakBytes;
+
+    /**
+     * How many moves the solution has.
+     */
+    private final int length;
+
+    SolverStats(long expanded, long generated, int iterations, long heuristicNanos, long nanos, long peakBytes,
+            int length)
+    {
+        this.expanded = expanded;
+        this.generated = generated;
+        this.iterations = iterations;
+        this.heuristicNanos = heuristicNanos;
+        this.nanos = nanos;
+        this.peakBytes = peakBytes;
+        this.length = length;
+    }
+
+    public long getExpanded()
+    {
+        return this.expanded;
+    }
+
+    public long getGenerated()
+    {
+        return this.generated;
+    }
+
+    /**
+     * @return The average number of children of an expanded node, or 0 if
+     * no node was expanded
+     */
+    public double getBranchingFactor()
+    {
+        return this.expanded == 0 ? 0 : (double) this.generated / this.expanded;
+    }
+
+    public int getIterations()
+    {
+        return this.iterations;
+    }
+
+    /**
+     * @return About how long was spent updating the heuristic estimate,
+     * worked out from a sample of the moves
+     */
+    public long getHeuristicNanos()
+    {
+        return this.heuristicNanos;
+    }
+
+    public long getNanos()
+    {
+        return this.nanos;
+    }
+
+    /**
+     * @return The most memory the searches held, in bytes: the paths and
+     * the copies of the board of every worker
+     */
+    public long getPeakBytes()
+    {
+        return this.peakBytes;
+    }
+
+    /**
+     * @return How many moves the solution has
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.length + " moves, " + this.iterations + " iterations, " + this.expanded + " expanded, "
+                + this.generated + " generated (branching " + String.format("%.3f", getBranchingFactor())
+                + "), " + this.nanos / 1000000 + "ms, about " + this.heuristicNanos / 1000000
+                + "ms in the heuristic, " + this.peakBytes + " bytes";
+    }
+}
@@ -0,0 +1,740 @@
+package slide.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import slide.Board;
+import slide.Move;
+
+/**
+ * The exact distance from solved of every solvable state of one small board
+ * size, found by a breadth first search of the whole state space. With it
+ * the distance of any board is one lookup and an optimal solution is a walk
+ * downhill, so it is also a Solver.
+ *
+ * Every state has a dense index: the cell of the blank times (n - 1)! / 2,
+ * plus half the Lehmer code rank of the tiles read left to right and top to
+ * bottom, skipping the blank. Only half the orders of the tiles are solvable
+ * for each cell of the blank, and the parity of the order is the parity of
+ * the sum of its Lehmer digits, so the digit with radix 2 (the lowest one
+ * that isn't always 0) follows from the others and is dropped. The table is
+ * one byte a state, n! / 2 bytes, so boards of up to 12 cells (3x4 and 2x6,
+ * 240MB) are supported.
+ *
+ * The search goes a layer at a time. The current and next layers are
+ * bitsets over the indices, and a layer can be expanded on a pool, split
+ * into chunks of the current layer. Moving the blank sideways doesn't change
+ * the order of the tiles, so those neighbours are found without re-ranking.
+ *
+ * A table is either built by build() or mapped from a file written by
+ * save(), like a PatternDatabase. Lookups only read the table, so one can be
+ * shared by any number of threads.
+ *
+ * Running this class builds a table and prints the distribution, e.g.
+ * java slide.solver.StateSpace 3 3
+ *
+ * @author Griffin
+ */
+public class StateSpace implements Solver
+{
+
+    /**
+     * The first four bytes of a state space file, "SLSS".
+     */
+    private static final int MAGIC = 0x534C5353;
+
+    /**
+     * The version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The most cells a board can have.
+     */
+    public static final int MAX_CELLS = 12;
+
+    /**
+     * The bits of a digit table entry that hold the digits.
+     */
+    private static final int DIGITS = (1 << 30) - 1;
+
+    /**
+     * The table entry of a state the search hasn't reached yet.
+     */
+    private static final byte UNSEEN = (byte) 0xFF;
+
+    /**
+     * How many words of the current layer one task expands.
+     */
+    private static final int CHUNK = 1 << 12;
+
+    /**
+     * The width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * How many states there are for each cell of the blank, (n - 1)! / 2.
+     */
+    private final int block;
+
+    /**
+     * The Lehmer digits of the order of the tiles, split into the first and
+     * the last few digits, for unrank(). See digitTable().
+     */
+    private final int[] highDigits, lowDigits;
+
+    /**
+     * How many orders the low digits cover, halved, and how far the low
+     * digits are shifted to follow the high ones.
+     */
+    private final int lowHalf, lowShift;
+
+    /**
+     * The distance of every state, one unsigned byte each.
+     */
+    private final ByteBuffer table;
+
+    /**
+     * How many states there are at each distance, filled in by search() when
+     * the table is built.
+     */
+    private long[] distribution;
+
+    /**
+     * Wraps a table.
+     */
+    private StateSpace(int width, int height, ByteBuffer table, long[] distribution)
+    {
+        this.width = width;
+        this.height = height;
+        int m = width * height - 1;
+        this.block = (int) (factorial(m) / 2);
+        int low = Math.max(2, (m + 1) / 2);
+        this.lowHalf = (int) (factorial(low) / 2);
+        this.lowShift = (m - low) << 2;
+        this.highDigits = digitTable(m, low, 1);
+        this.lowDigits = digitTable(low, 0, 2);
+        this.table = table;
+        this.distribution = distribution;
+    }
+
+    /**
+     * Builds the table on the calling thread.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @return The table
+     * @throws IllegalArgumentException If the board is narrower than 2 or
+     * has more than MAX_CELLS cells
+     */
+    public static StateSpace build(int width, int height)
+    {
+        return build(width, height, null);
+    }
+
+    /**
+     * Builds the table, expanding each layer on a pool.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param pool The pool to run on, which isn't shut down by this method,
+     * or null to run on the calling thread
+     * @return The table
+     * @throws IllegalArgumentException If the board is narrower than 2 or
+     * has more than MAX_CELLS cells
+     */
+    public static StateSpace build(int width, int height, ForkJoinPool pool)
+    {
+        if (width < 2 || height < 2 || width * height > MAX_CELLS)
+        {
+            throw new IllegalArgumentException("Only boards of at least 2x2 and at most " + MAX_CELLS
+                    + " cells can be explored");
+        }
+        int states = (int) (factorial(width * height) / 2);
+        ByteBuffer table = ByteBuffer.allocate(states);
+        Arrays.fill(table.array(), UNSEEN);
+        StateSpace rtnval = new StateSpace(width, height, table, null);
+        rtnval.search(pool);
+        return rtnval;
+    }
+
+    /**
+     * Fills in the table. See build().
+     *
+     * @param pool The pool to expand layers on, or null
+     */
+    private void search(ForkJoinPool pool)
+    {
+        int words = (this.table.capacity() + 63) >>> 6;
+        AtomicLongArray frontier = new AtomicLongArray(words);
+        AtomicLongArray next = new AtomicLongArray(words);
+        int[] solved = new int[this.width * this.height];
+        for (int k = 0; k < solved.length - 1; ++k)
+        {
+            solved[k] = k + 1;
+        }
+        int start = rank(solved);
+        this.table.put(start, (byte) 0);
+        frontier.set(start >>> 6, 1L << start);
+        long[] counts = new long[64];
+        counts[0] = 1;
+        int depth = 0;
+        long found = 1;
+        while (found > 0)
+        {
+            int layer = depth;
+            AtomicLongArray current = frontier;
+            AtomicLongArray following = next;
+            if (pool == null)
+            {
+                found = expand(0, words, layer, current, following);
+            } else
+            {
+                int chunks = (words + CHUNK - 1) / CHUNK;
+                found = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .mapToLong(c -> expand(c * CHUNK, Math.min(words, (c + 1) * CHUNK), layer, current,
+                                following))
+                        .sum()).join();
+            }
+            if (found > 0)
+            {
+                ++depth;
+                if (depth == counts.length)
+                {
+                    counts = Arrays.copyOf(counts, depth * 2);
+                }
+                counts[depth] = found;
+            }
+            for (int w = 0; w < words; ++w)
+            {
+                frontier.set(w, 0);
+            }
+            frontier = following;
+            next = current;
+        }
+        this.distribution = Arrays.copyOf(counts, depth + 1);
+    }
+
+    /**
+     * Expands part of a layer.
+     *
+     * @param from The first word of the layer to expand
+     * @param to The word after the last one to expand
+     * @param depth The distance of the layer
+     * @param frontier The layer
+     * @param next Gets the states first reached from it
+     * @return How many states were first reached
+     */
+    private long expand(int from, int to, int depth, AtomicLongArray frontier, AtomicLongArray next)
+    {
+        int n = this.width * this.height;
+        int[] cells = new int[n];
+        long rtnval = 0;
+        for (int w = from; w < to; ++w)
+        {
+            long word = frontier.get(w);
+            while (word != 0)
+            {
+                int index = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                int blank = unrank(index, cells);
+                int x = blank % this.width;
+                //Sideways moves keep the order of the tiles
+                if (x > 0)
+                {
+                    rtnval += visit(index - this.block, depth, next);
+                }
+                if (x < this.width - 1)
+                {
+                    rtnval += visit(index + this.block, depth, next);
+                }
+                if (blank >= this.width)
+                {
+                    rtnval += visit(slide(cells, blank, blank - this.width), depth, next);
+                }
+                if (blank < n - this.width)
+                {
+                    rtnval += visit(slide(cells, blank, blank + this.width), depth, next);
+                }
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Ranks the state after sliding a tile into the blank, leaving cells as
+     * it was.
+     *
+     * @param cells The tiles
+     * @param blank The index of the blank
+     * @param target The index of the tile
+     * @return The index of the state after the move
+     */
+    private int slide(int[] cells, int blank, int target)
+    {
+        cells[blank] = cells[target];
+        cells[target] = Board.BLANK;
+        int rtnval = rank(cells);
+        cells[target] = cells[blank];
+        cells[blank] = Board.BLANK;
+        return rtnval;
+    }
+
+    /**
+     * Adds a state to the next layer if it hasn't been reached. Two threads
+     * can both see a state as unreached and write the same distance, but
+     * only the one that sets its bit in next counts it.
+     *
+     * @param index The state
+     * @param depth The distance of the layer being expanded
+     * @param next The next layer
+     * @return 1 if this call added the state, 0 if not
+     */
+    private int visit(int index, int depth, AtomicLongArray next)
+    {
+        int rtnval = 0;
+        if (this.table.get(index) == UNSEEN)
+        {
+            this.table.put(index, (byte) (depth + 1));
+            long bit = 1L << index;
+            long old = next.getAndAccumulate(index >>> 6, bit, (a, b) -> a | b);
+            rtnval = (old & bit) == 0 ? 1 : 0;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Ranks a state. See the class comment.
+     *
+     * @param cells The tiles, left to right and top to bottom, with BLANK for
+     * the blank, which must be solvable
+     * @return The dense index of the state
+     */
+    private int rank(int[] cells)
+    {
+        int m = cells.length - 1;
+        int used = 0;
+        int order = 0;
+        int blank = 0;
+        int i = 0;
+        for (int k = 0; k < cells.length; ++k)
+        {
+            if (cells[k] == Board.BLANK)
+            {
+                blank = k;
+            } else
+            {
+                int t = cells[k] - 1;
+                order = order * (m - i) + t - Integer.bitCount(used & ((1 << t) - 1));
+                used |= 1 << t;
+                ++i;
+            }
+        }
+        return blank * this.block + order / 2;
+    }
+
+    /**
+     * Turns a dense index back into a state. The Lehmer digits are looked up
+     * in two tables instead of divided out one at a time, and the tiles
+     * still unused are kept as a list of nibbles in a long, so picking each
+     * one takes a few shifts.
+     *
+     * @param index The dense index
+     * @param cells Filled with the tiles
+     * @return The index of the blank
+     */
+    private int unrank(int index, int[] cells)
+    {
+        int m = cells.length - 1;
+        int blank = index / this.block;
+        int half = index - blank * this.block;
+        int high = this.highDigits[half / this.lowHalf];
+        int low = this.lowDigits[half % this.lowHalf];
+        long digits = (high & DIGITS) | (long) (low & DIGITS) << this.lowShift;
+        //Put back the dropped digit, which makes the order's parity fit the blank
+        digits |= (long) ((parity(blank) + (high >>> 30) + (low >>> 30)) & 1) << ((m - 2) << 2);
+        long unused = 0xFEDCBA9876543210L;
+        for (int k = 0; k < cells.length; ++k)
+        {
+            if (k == blank)
+            {
+                cells[k] = Board.BLANK;
+            } else
+            {
+                int shift = (int) (digits & 15) << 2;
+                digits >>>= 4;
+                cells[k] = (int) ((unused >>> shift) & 15) + 1;
+                long below = (1L << shift) - 1;
+                unused = (unused & below) | ((unused >>> 4) & ~below);
+            }
+        }
+        return blank;
+    }
+
+    /**
+     * Makes a table of Lehmer digits. Entry v holds the digits of the mixed
+     * radix number v * step with radices from, from - 1, ... down to 1 more
+     * than to, 4 bits each with the first in the lowest bits, and the parity
+     * of their sum in bit 30.
+     *
+     * @param from The radix of the first digit
+     * @param to The radix after the last digit
+     * @param step What each entry's number is a multiple of
+     * @return The table
+     */
+    private static int[] digitTable(int from, int to, int step)
+    {
+        int[] rtnval = new int[(int) (factorial(from) / factorial(to) / step)];
+        for (int v = 0; v < rtnval.length; ++v)
+        {
+            int number = v * step;
+            int sum = 0;
+            for (int radix = to + 1; radix <= from; ++radix)
+            {
+                int digit = number % radix;
+                number /= radix;
+                sum += digit;
+                rtnval[v] |= digit << ((from - radix) << 2);
+            }
+            rtnval[v] |= (sum & 1) << 30;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Works out the parity the order of the tiles has in every solvable
+     * state with the blank in a cell. It is even in the solved state, and
+     * moving the blank up or down a row moves one tile past width - 1
+     * others.
+     *
+     * @param blank The index of the blank
+     * @return 0 for even, 1 for odd
+     */
+    private int parity(int blank)
+    {
+        return ((this.height - 1 - blank / this.width) * (this.width - 1)) & 1;
+    }
+
+    private static long factorial(int n)
+    {
+        long rtnval = 1;
+        for (int i = 2; i <= n; ++i)
+        {
+            rtnval *= i;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Copies a board's tiles, checking that it is the right size and
+     * solvable.
+     *
+     * @param board The board
+     * @return The tiles
+     * @throws IllegalArgumentException If the board is another size or can't
+     * be solved
+     */
+    private int[] cells(Board board)
+    {
+        if (board.getWidth() != this.width || board.getHeight() != this.height)
+        {
+            throw new IllegalArgumentException("The board is " + board.getWidth() + "x" + board.getHeight()
+                    + ", not " + this.width + "x" + this.height);
+        }
+        if (!board.checkSolvable())
+        {
+            throw new IllegalArgumentException("The board can't be solved");
+        }
+        int[] rtnval = new int[this.width * this.height];
+        for (int k = 0; k < rtnval.length; ++k)
+        {
+            rtnval[k] = board.getTile(k % this.width, k / this.width);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Looks up how far a board is from solved.
+     *
+     * @param board The board
+     * @return The fewest moves that solve it
+     * @throws IllegalArgumentException If the board is another size or can't
+     * be solved
+     */
+    public int distance(Board board)
+    {
+        return this.table.get(rank(cells(board))) & 0xFF;
+    }
+
+    /**
+     * Finds a move that starts an optimal solution.
+     *
+     * @param board The board
+     * @return The move, packed (see Move), or -1 if the board is solved
+     * @throws IllegalArgumentException If the board is another size or can't
+     * be solved
+     */
+    public int bestMove(Board board)
+    {
+        int[] cells = cells(board);
+        return bestMove(cells, board.getBlankPosition());
+    }
+
+    /**
+     * Finds a move to a neighbouring state one move closer to solved.
+     *
+     * @param cells The tiles
+     * @param blank The index of the blank
+     * @return The move, packed, or -1 if the state is solved
+     */
+    private int bestMove(int[] cells, int blank)
+    {
+        int distance = this.table.get(rank(cells)) & 0xFF;
+        int rtnval = -1;
+        for (int direction = 0; rtnval < 0 && distance > 0 && direction < 4; ++direction)
+        {
+            int move = Move.pack(blank, direction);
+            int target = Move.target(move, this.width);
+            boolean onBoard = direction == Board.UP ? blank >= this.width
+                    : direction == Board.DOWN ? blank < cells.length - this.width
+                    : direction == Board.RIGHT ? blank % this.width < this.width - 1
+                    : blank % this.width > 0;
+            if (onBoard && (this.table.get(slide(cells, blank, target)) & 0xFF) == distance - 1)
+            {
+                rtnval = move;
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Finds a shortest solution by walking downhill through the table.
+     */
+    @Override
+    public List<Move> solve(Board board)
+    {
+        int[] moves = solvePacked(board);
+        List<Move> rtnval = new ArrayList<>(moves.length);
+        for (int move : moves)
+        {
+            rtnval.add(Move.unpack(move, this.width));
+        }
+        return rtnval;
+    }
+
+    @Override
+    public int[] solvePacked(Board board)
+    {
+        int[] cells = cells(board);
+        int blank = board.getBlankPosition();
+        int[] rtnval = new int[this.table.get(rank(cells)) & 0xFF];
+        for (int i = 0; i < rtnval.length; ++i)
+        {
+            rtnval[i] = bestMove(cells, blank);
+            int target = Move.target(rtnval[i], this.width);
+            cells[blank] = cells[target];
+            cells[target] = Board.BLANK;
+            blank = target;
+        }
+        return rtnval;
+    }
+
+    /**
+     * Finds the hardest boards, the ones furthest from solved.
+     *
+     * @param limit The most boards to return
+     * @return Up to limit boards at the greatest distance
+     */
+    public List<Board> hardest(int limit)
+    {
+        int max = getMaxDistance();
+        int[] cells = new int[this.width * this.height];
+        List<Board> rtnval = new ArrayList<>();
+        for (int index = 0; rtnval.size() < limit && index < this.table.capacity(); ++index)
+        {
+            if ((this.table.get(index) & 0xFF) == max)
+            {
+                unrank(index, cells);
+                rtnval.add(new Board(this.width, this.height, cells));
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * @return How many states there are at each distance, from 0 up to
+     * getMaxDistance()
+     */
+    public long[] getDistribution()
+    {
+        return this.distribution.clone();
+    }
+
+    /**
+     * @return The greatest distance of any state, which is the most moves
+     * any board of this size needs
+     */
+    public int getMaxDistance()
+    {
+        return this.distribution.length - 1;
+    }
+
+    /**
+     * @return How many solvable states there are, n! / 2
+     */
+    public int size()
+    {
+        return this.table.capacity();
+    }
+
+    /**
+     * Writes the table to a file that load() can map. The file is a header
+     * (magic, version, width, height and greatest distance as ints, then the
+     * number of states at each distance as longs) followed by the table.
+     *
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     */
+    public void save(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.width);
+            out.writeInt(this.height);
+            out.writeInt(getMaxDistance());
+            for (long count : this.distribution)
+            {
+                out.writeLong(count);
+            }
+            ByteBuffer data = this.table.duplicate();
+            data.clear();
+            byte[] chunk = new byte[1 << 16];
+            while (data.hasRemaining())
+            {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Maps a table written by save(). Only the header is read, the table is
+     * paged in by the operating system as it is used.
+     *
+     * @param file The file to map
+     * @return The table
+     * @throws IOException If the file can't be read or isn't a state space
+     */
+    public static StateSpace load(File file) throws IOException
+    {
+        int width, height;
+        long[] distribution;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException(file + " isn't a state space");
+            }
+            width = in.readInt();
+            height = in.readInt();
+            int max = in.readInt();
+            if (width < 2 || height < 2 || width * height > MAX_CELLS || max < 0 || max > 0xFF)
+            {
+                throw new IOException(file + " has a broken header");
+            }
+            distribution = new long[max + 1];
+            for (int d = 0; d <= max; ++d)
+            {
+                distribution[d] = in.readLong();
+            }
+        }
+        int header = 4 * 5 + 8 * distribution.length;
+        long length = factorial(width * height) / 2;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() != header + length)
+            {
+                throw new IOException(file + " is the wrong size");
+            }
+            //The mapping stays valid after the channel is closed
+            return new StateSpace(width, height, channel.map(FileChannel.MapMode.READ_ONLY, header, length),
+                    distribution);
+        }
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.width + "x" + this.height + " state space, " + size() + " states, at most "
+                + getMaxDistance() + " moves";
+    }
+
+    /**
+     * Builds a table and prints how long it took, the distribution and a
+     * hardest board.
+     *
+     * @param args The width and height, optionally the number of threads
+     * (all cores by default) and a file to save the table to
+     * @throws IOException If the table can't be saved
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.out.println("Usage: StateSpace <width> <height> [threads] [file]");
+            return;
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        long start = System.nanoTime();
+        StateSpace space = build(width, height, pool);
+        long millis = (System.nanoTime() - start) / 1000000;
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+        System.out.println(space + ", built in " + millis + "ms on " + threads + " threads");
+        long[] distribution = space.getDistribution();
+        for (int d = 0; d < distribution.length; ++d)
+        {
+            System.out.println(d + "\t" + distribution[d]);
+        }
+        System.out.println("A hardest board:");
+        System.out.println(space.hardest(1).get(0));
+        if (args.length > 3)
+        {
+            space.save(new File(args[3]));
+        }
+    }
+}
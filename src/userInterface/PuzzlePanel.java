@@ -35,17 +35,17 @@ public class PuzzlePanel extends javax.swing.JPanel
     {
         this.main = main;
         this.board = board;
-        setLayout(new java.awt.GridLayout(this.board.getTiles()[0].length,
-                this.board.getTiles().length));
-        for (int j = 0; j < this.board.getTiles()[0].length; ++j)
+        setLayout(new java.awt.GridLayout(this.board.getHeight(),
+                this.board.getWidth()));
+        for (int j = 0; j < this.board.getHeight(); ++j)
         {
-            for (int i = 0; i < this.board.getTiles().length; ++i)
+            for (int i = 0; i < this.board.getWidth(); ++i)
             {
                 JButton btn = new JButton();
                 btn.setActionCommand(i + " " + j);
-                if (this.board.getTiles()[i][j] != null)
+                if (this.board.getTile(i, j) != Board.BLANK)
                 {
-                    btn.setText(this.board.getTiles()[i][j].toString());
+                    btn.setText(Integer.toString(this.board.getTile(i, j)));
                 } else
                 {
                     btn.setEnabled(false);
@@ -100,14 +100,14 @@ public class PuzzlePanel extends javax.swing.JPanel
     {
         Component[] buttons = this.getComponents();
         int count = 0;
-        for (int j = 0; j < this.board.getTiles()[0].length; ++j)
+        for (int j = 0; j < this.board.getHeight(); ++j)
         {
-            for (int i = 0; i < this.board.getTiles().length; ++i)
+            for (int i = 0; i < this.board.getWidth(); ++i)
             {
                 JButton btn = (JButton) buttons[count];
-                if (this.board.getTiles()[i][j] != null)
+                if (this.board.getTile(i, j) != Board.BLANK)
                 {
-                    btn.setText(this.board.getTiles()[i][j].toString());
+                    btn.setText(Integer.toString(this.board.getTile(i, j)));
                     btn.setEnabled(true);
                 } else
                 {
@@ -0,0 +1,136 @@
+package serializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import slide.Board;
+
+/**
+ * Tests that archives keep every board through being added to, including
+ * while they are open and when a writer is never closed.
+ *
+ * @author Griffin
+ */
+public class PuzzleArchiveTest
+{
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(13);
+
+    @Test
+    public void appendKeepsOpenReadersWorking() throws IOException
+    {
+        File file = this.folder.newFile("archive.slda");
+        List<Board> boards = boards(50);
+        write(file, boards);
+        PuzzleArchive before = PuzzleArchive.open(file);
+        List<Board> more = boards(50);
+        write(file, more);
+        assertSame(boards, before);
+        boards.addAll(more);
+        assertSame(boards, PuzzleArchive.open(file));
+    }
+
+    /**
+     * A writer that is never closed leaves the archive as it was, and a
+     * later writer carries on from there.
+     */
+    @Test
+    public void unclosedWriterLeavesArchiveReadable() throws IOException
+    {
+        File file = this.folder.newFile("archive.slda");
+        List<Board> boards = boards(20);
+        write(file, boards);
+        PuzzleArchiveWriter abandoned = new PuzzleArchiveWriter(file, 4, 4);
+        //Enough boards to overflow the writer's buffer onto the disk
+        for (Board board : boards(5000))
+        {
+            abandoned.add(board);
+        }
+        assertSame(boards, PuzzleArchive.open(file));
+        List<Board> more = boards(10);
+        write(file, more);
+        boards.addAll(more);
+        assertSame(boards, PuzzleArchive.open(file));
+    }
+
+    @Test
+    public void otherSizeIsRefused() throws IOException
+    {
+        File file = this.folder.newFile("archive.slda");
+        write(file, boards(3));
+        try
+        {
+            new PuzzleArchiveWriter(file, 3, 3).close();
+            fail();
+        } catch (IOException e)
+        {
+            assertEquals(3, PuzzleArchive.open(file).size());
+        }
+    }
+
+    /**
+     * Makes shuffled 4x4 boards with a few turns each.
+     *
+     * @param count How many boards
+     * @return The boards
+     */
+    private List<Board> boards(int count)
+    {
+        List<Board> rtnval = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+        {
+            Board board = new Board(4, 4);
+            board.shuffle(this.random.nextLong());
+            for (int turn = 0; turn < 5; ++turn)
+            {
+                board.queryTile(this.random.nextInt(4), board.getBlankY());
+            }
+            rtnval.add(board);
+        }
+        return rtnval;
+    }
+
+    /**
+     * Adds boards to an archive and closes it.
+     *
+     * @param file The archive
+     * @param boards The boards
+     */
+    private static void write(File file, List<Board> boards) throws IOException
+    {
+        try (PuzzleArchiveWriter writer = new PuzzleArchiveWriter(file, 4, 4))
+        {
+            for (Board board : boards)
+            {
+                writer.add(board);
+            }
+        }
+    }
+
+    /**
+     * Checks that an archive holds the boards, with their turns.
+     *
+     * @param expected The boards
+     * @param archive The archive
+     */
+    private static void assertSame(List<Board> expected, PuzzleArchive archive) throws IOException
+    {
+        assertEquals(expected.size(), archive.size());
+        for (int i = 0; i < expected.size(); ++i)
+        {
+            Board board = archive.get(i);
+            assertEquals(expected.get(i), board);
+            assertEquals(expected.get(i).getTurnIndex(), board.getTurnIndex());
+        }
+    }
+}
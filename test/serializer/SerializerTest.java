@@ -0,0 +1,200 @@
+package serializer;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import slide.Board;
+
+/**
+ * Tests that boards and their turns survive being saved and loaded in every
+ * format, including the files older builds saved.
+ *
+ * @author Griffin
+ */
+public class SerializerTest
+{
+
+    /**
+     * How many times each save or load is repeated when looking for leaked
+     * file handles.
+     */
+    private static final int REPEATS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The same board saved with Java serialization and as XML by an older
+     * build loads the same both ways, and undoes the same.
+     */
+    @Test
+    public void legacyFilesLoad() throws URISyntaxException
+    {
+        Board serialized = Deserializer.deserializeBoard(fixture("legacy.sld"));
+        Board xml = Deserializer.XMLDeserializeBoard(fixture("legacy.xml"));
+        assertNotNull(serialized);
+        assertEquals(4, serialized.getWidth());
+        assertEquals(17, serialized.getTurnIndex());
+        assertSameHistory(serialized, xml);
+    }
+
+    /**
+     * A legacy board saved again in the binary format keeps its turns.
+     */
+    @Test
+    public void legacyResavesAsBinary() throws URISyntaxException, IOException
+    {
+        Board legacy = Deserializer.deserializeBoard(fixture("legacy.sld"));
+        File file = this.folder.newFile("resaved.sld");
+        Serializer.serializeBoard(file, legacy);
+        assertSameHistory(legacy, Deserializer.deserializeBoard(file));
+    }
+
+    /**
+     * Saves and loads a board many times in both formats, and loads a
+     * corrupt file many times, checking that none of them leaves its file
+     * open.
+     */
+    @Test
+    public void streamsAreClosed() throws IOException
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        assumeTrue(os instanceof UnixOperatingSystemMXBean);
+        UnixOperatingSystemMXBean unix = (UnixOperatingSystemMXBean) os;
+        File sld = this.folder.newFile("board.sld");
+        File xml = this.folder.newFile("board.xml");
+        File corrupt = this.folder.newFile("corrupt.sld");
+        Files.write(corrupt.toPath(), new byte[]
+        {
+            1, 2, 3, 4, 5, 6, 7, 8
+        });
+        Board board = new Board(3, 3);
+        board.queryTile(2, 1);
+        long open = unix.getOpenFileDescriptorCount();
+        for (int i = 0; i < REPEATS; ++i)
+        {
+            Serializer.serializeBoard(sld, board);
+            assertEquals(board, Deserializer.deserializeBoard(sld));
+            Serializer.XMLSerializeBoard(xml, board);
+            assertEquals(board, Deserializer.XMLDeserializeBoard(xml));
+            assertNull(Deserializer.deserializeBoard(corrupt));
+        }
+        assertTrue(unix.getOpenFileDescriptorCount() - open < REPEATS / 2);
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException
+    {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 30; ++trial)
+        {
+            Board board = played(random);
+            File file = this.folder.newFile("board" + trial + ".sld");
+            Serializer.serializeBoard(file, board);
+            assertSameHistory(board, Deserializer.deserializeBoard(file));
+        }
+    }
+
+    @Test
+    public void xmlRoundTrip() throws IOException
+    {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 30; ++trial)
+        {
+            Board board = played(random);
+            File file = this.folder.newFile("board" + trial + ".xml");
+            Serializer.XMLSerializeBoard(file, board);
+            assertSameHistory(board, Deserializer.XMLDeserializeBoard(file));
+        }
+    }
+
+    /**
+     * An external entity in a save file isn't read. Had it been, the board
+     * would load as the 2x2 board whose rows are in the entity's file.
+     */
+    @Test
+    public void xmlExternalEntitiesAreIgnored() throws IOException
+    {
+        File rows = this.folder.newFile("rows.txt");
+        Files.write(rows.toPath(), "<row>1,2</row><row>null,3</row>".getBytes(StandardCharsets.UTF_8));
+        File file = this.folder.newFile("entity.xml");
+        Files.write(file.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+                + "<!DOCTYPE board [<!ENTITY rows SYSTEM \"" + rows.toURI() + "\">]>\r\n"
+                + "<board><tiles><dimensions>2,2</dimensions>&rows;</tiles><turns></turns></board>\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+        Board loaded = Deserializer.XMLDeserializeBoard(file);
+        assertFalse(loaded.getWidth() == 2 && loaded.getTile(1, 1) == 3);
+    }
+
+    /**
+     * Makes a shuffled board of a random size and plays random turns on it,
+     * some of them sliding several tiles at once.
+     *
+     * @param random Where the randomness comes from
+     * @return The board
+     */
+    private static Board played(Random random)
+    {
+        int width = 2 + random.nextInt(6);
+        int height = 2 + random.nextInt(6);
+        Board rtnval = new Board(width, height);
+        rtnval.shuffle(random.nextLong());
+        for (int turn = 0; turn < 100; ++turn)
+        {
+            if (random.nextBoolean())
+            {
+                rtnval.queryTile(rtnval.getBlankX(), random.nextInt(height));
+            } else
+            {
+                rtnval.queryTile(random.nextInt(width), rtnval.getBlankY());
+            }
+        }
+        return rtnval;
+    }
+
+    /**
+     * Checks that two boards hold the same tiles and turns, by undoing every
+     * turn of both and comparing them after each one. Both are left at their
+     * first turn.
+     *
+     * @param expected The original board
+     * @param actual The loaded board
+     */
+    private static void assertSameHistory(Board expected, Board actual)
+    {
+        assertNotNull(actual);
+        assertEquals(expected, actual);
+        assertEquals(expected.getTurnIndex(), actual.getTurnIndex());
+        while (!expected.movesEmpty())
+        {
+            expected.undo();
+            actual.undo();
+            assertEquals(expected, actual);
+        }
+        assertTrue(actual.movesEmpty());
+    }
+
+    /**
+     * @param name The name of a file next to this class
+     * @return The file
+     */
+    private File fixture(String name) throws URISyntaxException
+    {
+        return new File(getClass().getResource(name).toURI());
+    }
+}
@@ -0,0 +1,396 @@
+package slide;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests of Board's running state against the slow ways of working it out.
+ *
+ * @author Griffin
+ */
+public class BoardTest
+{
+
+    /**
+     * The largest width and height tried.
+     */
+    private static final int MAX_SIDE = 6;
+
+    /**
+     * Saving as XML must leave the undo history alone, so every move can
+     * still be undone afterwards, back to the solved board.
+     */
+    @Test
+    public void toXMLKeepsHistory()
+    {
+        Random random = new Random(10);
+        Board board = new Board(4, 4);
+        for (int step = 0; step < 100; ++step)
+        {
+            board.queryTile(random.nextInt(4), random.nextInt(4));
+        }
+        assertFalse(board.movesEmpty());
+        String xml = board.toXML();
+        assertFalse(board.movesEmpty());
+        assertTrue(xml.equals(board.toXML()));
+        while (!board.movesEmpty())
+        {
+            board.undo();
+        }
+        assertTrue(board.checkSolved());
+    }
+
+    /**
+     * Compares the running in-place count with comparing every tile to a
+     * solved board, after every move of random walks that start and end on
+     * the solved board.
+     */
+    @Test
+    public void checkSolvedMatchesFullComparison()
+    {
+        Random random = new Random(3);
+        for (int width = 1; width <= MAX_SIDE; ++width)
+        {
+            for (int height = 1; height <= MAX_SIDE; ++height)
+            {
+                Board solved = new Board(width, height);
+                Board board = new Board(width, height);
+                for (int walk = 0; walk < 20; ++walk)
+                {
+                    for (int step = 0; step < 50; ++step)
+                    {
+                        board.queryTile(random.nextInt(width), random.nextInt(height));
+                        assertEquals(board.equals(solved), board.checkSolved());
+                    }
+                    while (!board.movesEmpty())
+                    {
+                        board.undo();
+                        assertEquals(board.equals(solved), board.checkSolved());
+                    }
+                    assertTrue(board.checkSolved());
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the cycle parity solvability check with counting inversions
+     * pair by pair, on random boards from 2x2 to 6x6 with the blank in every
+     * cell, so every row parity is covered. Narrower boards don't follow the
+     * inversion rule, see checkSolvableOnOneLine().
+     */
+    @Test
+    public void checkSolvableMatchesInversionCount()
+    {
+        Random random = new Random(11);
+        for (int width = 2; width <= MAX_SIDE; ++width)
+        {
+            for (int height = 2; height <= MAX_SIDE; ++height)
+            {
+                int length = width * height;
+                for (int blank = 0; blank < length; ++blank)
+                {
+                    for (int trial = 0; trial < 10; ++trial)
+                    {
+                        int[] tiles = new int[length];
+                        for (int k = 0; k < length; ++k)
+                        {
+                            tiles[k] = k;
+                        }
+                        for (int k = length - 1; k > 0; --k)
+                        {
+                            int m = random.nextInt(k + 1);
+                            int tile = tiles[k];
+                            tiles[k] = tiles[m];
+                            tiles[m] = tile;
+                        }
+                        for (int k = 0; k < length; ++k)
+                        {
+                            if (tiles[k] == Board.BLANK)
+                            {
+                                tiles[k] = tiles[blank];
+                                tiles[blank] = Board.BLANK;
+                            }
+                        }
+                        Board board = new Board(width, height, tiles);
+                        assertEquals(inversionSolvable(width, height, tiles), board.checkSolvable());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * On a board one cell wide or high the blank can only slide along the
+     * line, so the only solvable boards are the solved one with its blank
+     * moved. Tries every arrangement of boards up to 1x6 and 6x1 against the
+     * boards reached by sliding the blank.
+     */
+    @Test
+    public void checkSolvableOnOneLine()
+    {
+        assertFalse(new Board(4, 1, new int[]
+        {
+            3, 1, 2, 0
+        }).checkSolvable());
+        assertTrue(new Board(1, 4, new int[]
+        {
+            1, 0, 2, 3
+        }).checkSolvable());
+        for (int length = 1; length <= MAX_SIDE; ++length)
+        {
+            for (boolean row : new boolean[]
+            {
+                true, false
+            })
+            {
+                int width = row ? length : 1;
+                int height = row ? 1 : length;
+                Set<Board> reachable = new HashSet<>();
+                for (int k = 0; k < length; ++k)
+                {
+                    Board board = new Board(width, height);
+                    board.queryTile(row ? k : 0, row ? 0 : k);
+                    reachable.add(board);
+                }
+                int[] tiles = new int[length];
+                for (int k = 0; k < length; ++k)
+                {
+                    tiles[k] = k;
+                }
+                do
+                {
+                    Board board = new Board(width, height, tiles);
+                    assertEquals(reachable.contains(board), board.checkSolvable());
+                } while (nextPermutation(tiles));
+            }
+        }
+    }
+
+    /**
+     * Shuffled boards one cell wide or high are always solvable and never
+     * solved.
+     */
+    @Test
+    public void shuffleOnOneLine()
+    {
+        for (int length = 2; length <= MAX_SIDE; ++length)
+        {
+            for (long seed = 0; seed < 100; ++seed)
+            {
+                Board row = new Board(length, 1);
+                row.shuffle(seed);
+                assertTrue(row.checkSolvable());
+                assertFalse(row.checkSolved());
+                Board column = new Board(1, length);
+                column.shuffle(seed);
+                assertTrue(column.checkSolvable());
+                assertFalse(column.checkSolved());
+            }
+        }
+    }
+
+    /**
+     * XML that doesn't hold a whole, consistent board is turned down with an
+     * XMLStreamException and leaves the board and its turns as they were.
+     */
+    @Test
+    public void fromXMLRejectsBadBoards()
+    {
+        String[] boards =
+        {
+            "<board><tiles><dimensions>3,1</dimensions><row>1,1,1</row></tiles></board>",
+            "<board><tiles><dimensions>2,2</dimensions><row>1,2</row><row>3,4</row></tiles></board>",
+            "<board><tiles><dimensions>2,2</dimensions><row>1,2,3</row><row>null</row></tiles></board>",
+            "<board><tiles><dimensions>2,2</dimensions><row>1,2</row></tiles></board>",
+            "<board><tiles><dimensions>2,2</dimensions><row>1,x</row><row>3,null</row></tiles></board>",
+            "<board><tiles><dimensions>2</dimensions></tiles></board>",
+            "<board><tiles><dimensions>2,2</dimensions><row>1,2</row><row>3,null</row></tiles>"
+                + "<turns><turn><move><x1>0</x1><y1>0</y1><x2>1</x2><y2>0</y2></move></turn></turns></board>",
+            "<board></board>"
+        };
+        for (String xml : boards)
+        {
+            Board board = new Board(3, 3);
+            board.queryTile(2, 1);
+            try
+            {
+                board.fromXML(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml)));
+                fail("Loaded " + xml);
+            } catch (XMLStreamException e)
+            {
+                Board expected = new Board(3, 3);
+                expected.queryTile(2, 1);
+                assertEquals(expected, board);
+                board.undo();
+                assertTrue(board.checkSolved());
+            }
+        }
+    }
+
+    /**
+     * A board saved without turns loads with none, instead of keeping the
+     * turns of the board it replaced.
+     *
+     * @throws XMLStreamException If the XML can't be read
+     */
+    @Test
+    public void fromXMLWithoutTurnsClearsThem() throws XMLStreamException
+    {
+        Board board = new Board(3, 3);
+        board.queryTile(2, 1);
+        board.fromXML(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(
+                "<board><tiles><dimensions>2,2</dimensions><row>1,2</row><row>null,3</row></tiles></board>")));
+        assertEquals(new Board(2, 2, new int[]
+        {
+            1, 2, 0, 3
+        }), board);
+        assertTrue(board.movesEmpty());
+    }
+
+    /**
+     * Packed tiles with a tile repeated, or two blanks, are turned down and
+     * leave the board as it was. A 2x2 board packs each tile into 2 bits.
+     */
+    @Test
+    public void readTilesRejectsRepeatedTiles()
+    {
+        byte[][] tiles =
+        {
+            //1, 1, 2, blank
+            {0x58},
+            //1, blank, 2, blank
+            {0x48}
+        };
+        for (byte[] packed : tiles)
+        {
+            Board board = new Board(2, 2);
+            try
+            {
+                board.readTiles(new DataInputStream(new ByteArrayInputStream(packed)), 2, 2);
+                fail("Loaded " + packed[0]);
+            } catch (IOException e)
+            {
+                assertTrue(e.getMessage().startsWith("Duplicate tile"));
+                assertEquals(new Board(2, 2), board);
+            }
+        }
+    }
+
+    /**
+     * Steps an array to the next arrangement in lexicographic order.
+     *
+     * @param values The array, which is changed
+     * @return False if values was the last arrangement, and is now the first
+     */
+    private static boolean nextPermutation(int[] values)
+    {
+        int i = values.length - 2;
+        while (i >= 0 && values[i] >= values[i + 1])
+        {
+            --i;
+        }
+        boolean rtnbool = i >= 0;
+        if (rtnbool)
+        {
+            int j = values.length - 1;
+            while (values[j] <= values[i])
+            {
+                --j;
+            }
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        for (int a = i + 1, b = values.length - 1; a < b; ++a, --b)
+        {
+            int value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+        }
+        return rtnbool;
+    }
+
+    /**
+     * The old check of solvability, which counts every inversion.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param tiles The tiles left to right and top to bottom
+     * @return True if the board can be solved
+     */
+    private static boolean inversionSolvable(int width, int height, int[] tiles)
+    {
+        int inversionCount = 0;
+        int blankRow = -1;
+        for (int k = 0; k < tiles.length; ++k)
+        {
+            if (tiles[k] != Board.BLANK)
+            {
+                for (int m = k + 1; m < tiles.length; ++m)
+                {
+                    if (tiles[m] != Board.BLANK && tiles[k] > tiles[m])
+                    {
+                        ++inversionCount;
+                    }
+                }
+            } else
+            {
+                blankRow = k / width;
+            }
+        }
+        boolean rtnbool;
+        if (width % 2 == 0 && (height - blankRow) % 2 == 0)
+        {
+            rtnbool = inversionCount % 2 == 1;
+        } else
+        {
+            rtnbool = inversionCount % 2 == 0;
+        }
+        return rtnbool;
+    }
+
+    /**
+     * Querying a cell off the board throws and leaves the board and its
+     * history alone, even where the cell's index would wrap into the next
+     * row next to the blank.
+     */
+    @Test
+    public void queryTileOffBoardThrows()
+    {
+        Board board = new Board(3, 3);
+        board.queryTile(2, 1);
+        Board before = new Board(3, 3);
+        before.queryTile(2, 1);
+        int[][] cells =
+        {
+            {3, 1}, {-1, 1}, {0, -1}, {2, 3}, {3, 0}, {-1, 2}, {0, 3}
+        };
+        for (int[] cell : cells)
+        {
+            try
+            {
+                board.queryTile(cell[0], cell[1]);
+                fail("Queried (" + cell[0] + ", " + cell[1] + ")");
+            } catch (IndexOutOfBoundsException e)
+            {
+                assertEquals(before, board);
+                assertEquals(1, board.getTurnCount());
+            }
+        }
+        board.undo();
+        assertTrue(board.checkSolved());
+    }
+}
@@ -0,0 +1,235 @@
+package slide;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the undo history's ring buffer, its redo zone, turns of several
+ * runs and seeking through checkpoints.
+ *
+ * @author Griffin
+ */
+public class HistoryTest
+{
+
+    @Test
+    public void oldestTurnsAreDropped()
+    {
+        History history = new History(8);
+        for (int i = 0; i < 20; ++i)
+        {
+            history.push(i % 4, i + 1);
+        }
+        assertEquals(8, history.turns());
+        assertEquals(12, history.dropped());
+        assertEquals(20, history.position());
+        for (int age = 0; age < 8; ++age)
+        {
+            int run = history.peek(age);
+            assertEquals((19 - age) % 4, History.direction(run));
+            assertEquals(20 - age, History.length(run));
+        }
+    }
+
+    @Test
+    public void undoneTurnsCanBeRedoneUntilANewTurn()
+    {
+        History history = new History(100);
+        for (int i = 0; i < 5; ++i)
+        {
+            history.push(History.RIGHT, i + 1);
+        }
+        assertEquals(5, History.length(history.pop()));
+        assertEquals(4, History.length(history.pop()));
+        assertEquals(3, history.turns());
+        assertEquals(2, history.redoTurns());
+        assertEquals(4, History.length(history.unpop()));
+        assertEquals(4, history.turns());
+        assertEquals(1, history.redoTurns());
+        assertTrue(history.push(History.UP, 1));
+        assertEquals(0, history.redoTurns());
+        assertFalse(history.push(History.UP, 1));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void redoWithNothingUndone()
+    {
+        History history = new History(100);
+        history.push(History.DOWN, 1);
+        history.unpop();
+    }
+
+    /**
+     * A turn of several runs is undone and redone as one turn, and dropped
+     * as one turn.
+     */
+    @Test
+    public void continuingRunsBelongToOneTurn()
+    {
+        History history = new History(5);
+        history.push(History.UP, 1);
+        history.extend(History.RIGHT, 2);
+        history.extend(History.RIGHT, 3);
+        history.extend(History.DOWN, 1);
+        assertEquals(1, history.turns());
+        assertEquals(3, history.size());
+        int last = history.pop();
+        assertTrue(History.continues(last));
+        assertEquals(History.DOWN, History.direction(last));
+        int merged = history.pop();
+        assertTrue(History.continues(merged));
+        assertEquals(5, History.length(merged));
+        assertFalse(History.continues(history.pop()));
+        assertEquals(0, history.turns());
+        assertEquals(1, history.redoTurns());
+        history.unpop();
+        assertTrue(history.redoContinues());
+        history.unpop();
+        history.unpop();
+        assertFalse(history.redoContinues());
+        assertEquals(1, history.turns());
+        //Three more runs overflow the limit of 5, which drops the whole turn
+        history.push(History.LEFT, 1);
+        history.push(History.LEFT, 1);
+        history.push(History.LEFT, 1);
+        assertEquals(3, history.turns());
+        assertEquals(3, history.size());
+        assertEquals(1, history.dropped());
+        assertFalse(History.continues(history.peek(2)));
+    }
+
+    @Test
+    public void longRunsAreSplit()
+    {
+        History history = new History(100);
+        int length = (1 << 29) + 10;
+        history.push(History.LEFT, length);
+        assertEquals(1, history.turns());
+        assertEquals(2, history.size());
+        assertEquals(length, History.length(history.pop()) + History.length(history.pop()));
+        assertEquals(0, history.turns());
+    }
+
+    @Test
+    public void sinceCheckpointCountsFromTheCheckpointBefore()
+    {
+        History history = new History(100);
+        for (int i = 0; i < 10; ++i)
+        {
+            history.push(History.UP, 1);
+        }
+        assertEquals(10, history.sinceCheckpoint());
+        history.checkpoint(new long[0]);
+        history.push(History.UP, 1);
+        history.push(History.UP, 1);
+        assertEquals(2, history.sinceCheckpoint());
+        for (int i = 0; i < 4; ++i)
+        {
+            history.pop();
+        }
+        assertEquals(8, history.sinceCheckpoint());
+        history.checkpoint(3, 3, new long[0]);
+        assertEquals(5, history.sinceCheckpoint());
+        //A new turn throws away the checkpoint at turn 10
+        history.push(History.UP, 1);
+        assertEquals(6, history.sinceCheckpoint());
+    }
+
+    /**
+     * Seeking to every turn, near and far, jumping through checkpoints,
+     * gives the board that was there.
+     */
+    @Test
+    public void seekRestoresEveryTurn()
+    {
+        Random random = new Random(17);
+        Board board = new Board(4, 4);
+        board.shuffle(random.nextLong());
+        List<long[]> keys = play(board, random, 1000);
+        for (int i = 0; i < 300; ++i)
+        {
+            int turn = random.nextInt(keys.size());
+            board.seek(turn);
+            assertEquals(turn, board.getTurnIndex());
+            assertEquals(keys.size() - 1, board.getTurnCount());
+            assertArrayEquals(keys.get(turn), board.toKey());
+        }
+        board.seek(0);
+        while (!board.redoEmpty())
+        {
+            board.redo();
+            assertArrayEquals(keys.get(board.getTurnIndex()), board.toKey());
+        }
+        board.seek(500);
+        board.undo();
+        assertArrayEquals(keys.get(499), board.toKey());
+        //A new turn throws away turns 500 on, and their checkpoints
+        keys = keys.subList(0, 500);
+        keys.addAll(play(board, random, 600).subList(1, 601));
+        for (int turn = keys.size() - 1; turn >= 0; turn -= 37)
+        {
+            board.seek(turn);
+            assertArrayEquals(keys.get(turn), board.toKey());
+        }
+    }
+
+    /**
+     * Seeking still works once the oldest turns and their checkpoints have
+     * been dropped.
+     */
+    @Test
+    public void seekAfterDroppingTurns()
+    {
+        Random random = new Random(19);
+        Board board = new Board(5, 3);
+        board.shuffle(random.nextLong());
+        board.setHistoryLimit(700);
+        List<long[]> keys = play(board, random, 2000);
+        int dropped = keys.size() - 1 - board.getTurnCount();
+        assertTrue(dropped > 0);
+        for (int i = 0; i < 100; ++i)
+        {
+            int turn = random.nextInt(board.getTurnCount() + 1);
+            board.seek(turn);
+            assertArrayEquals(keys.get(dropped + turn), board.toKey());
+        }
+    }
+
+    /**
+     * Plays single tile turns, never sliding a tile straight back.
+     *
+     * @param board The board
+     * @param random Where the randomness comes from
+     * @param turns How many turns to play
+     * @return The board's key before the turns and after each of them
+     */
+    private static List<long[]> play(Board board, Random random, int turns)
+    {
+        List<long[]> rtnval = new ArrayList<>();
+        rtnval.add(board.toKey());
+        int previous = -1;
+        while (rtnval.size() <= turns)
+        {
+            int x = board.getBlankX();
+            int y = board.getBlankY();
+            int direction = random.nextInt(4);
+            x += direction == 1 ? 1 : direction == 3 ? -1 : 0;
+            y += direction == 2 ? 1 : direction == 0 ? -1 : 0;
+            if (x >= 0 && y >= 0 && x < board.getWidth() && y < board.getHeight()
+                    && y * board.getWidth() + x != previous)
+            {
+                previous = board.getBlankPosition();
+                board.queryTile(x, y);
+                rtnval.add(board.toKey());
+            }
+        }
+        return rtnval;
+    }
+}
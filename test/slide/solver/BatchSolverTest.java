@@ -0,0 +1,36 @@
+package slide.solver;
+
+import java.io.IOException;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of loading pattern databases for batches.
+ *
+ * @author Griffin
+ */
+public class BatchSolverTest
+{
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * .pdb files that aren't named WxH-N.pdb are skipped, leaving linear
+     * conflicts for their sizes.
+     *
+     * @throws IOException If the files can't be made
+     */
+    @Test
+    public void badDatabaseNamesAreSkipped() throws IOException
+    {
+        this.folder.newFile("notes.pdb");
+        this.folder.newFile("3x3.pdb");
+        this.folder.newFile("3x3-a.pdb");
+        this.folder.newFile("x-1.pdb");
+        HeuristicFactory heuristics = BatchSolver.patternDatabases(this.folder.getRoot());
+        assertTrue(heuristics.create(3, 3) instanceof LinearConflictHeuristic);
+    }
+}
@@ -0,0 +1,157 @@
+package slide.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import slide.Board;
+import slide.Move;
+
+/**
+ * Tests that IDA* finds shortest solutions, against the exact distances of
+ * a StateSpace.
+ *
+ * @author Griffin
+ */
+public class IDAStarSolverTest
+{
+
+    /**
+     * Every 3x3 board and its distance.
+     */
+    private static StateSpace space;
+
+    /**
+     * The boards tried: random ones and the hardest there are.
+     */
+    private static List<Board> boards;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        space = StateSpace.build(3, 3);
+        boards = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 100; ++i)
+        {
+            Board board = new Board(3, 3);
+            board.shuffle(random.nextLong());
+            boards.add(board);
+        }
+        boards.addAll(space.hardest(4));
+        boards.add(new Board(3, 3));
+    }
+
+    @Test
+    public void linearConflictIsOptimal()
+    {
+        checkOptimal(new IDAStarSolver());
+    }
+
+    @Test
+    public void manhattanIsOptimal()
+    {
+        checkOptimal(new IDAStarSolver(ManhattanHeuristic::new));
+    }
+
+    @Test
+    public void parallelIsOptimal()
+    {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            checkOptimal(new ParallelIDAStarSolver(pool));
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void packedIsOptimal()
+    {
+        IDAStarSolver solver = new IDAStarSolver();
+        for (Board board : boards)
+        {
+            int[] moves = solver.solvePacked(board);
+            assertEquals(space.distance(board), moves.length);
+            Board copy = new Board(3, 3, tiles(board));
+            boolean solved = copy.checkSolved();
+            for (int move : moves)
+            {
+                solved = copy.applyMove(move);
+            }
+            assertTrue(solved);
+        }
+    }
+
+    /**
+     * A one row board with its tiles out of order, which no moves can fix, is
+     * turned down instead of searched forever.
+     */
+    @Test(timeout = 5000, expected = IllegalArgumentException.class)
+    public void deadEndThrows()
+    {
+        new IDAStarSolver().solve(new Board(4, 1, new int[]
+        {
+            3, 1, 2, 0
+        }));
+    }
+
+    @Test(timeout = 5000, expected = IllegalArgumentException.class)
+    public void parallelDeadEndThrows()
+    {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            new ParallelIDAStarSolver(pool).solve(new Board(4, 1, new int[]
+            {
+                3, 1, 2, 0
+            }));
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks that a solver's solutions are as short as the distances and
+     * solve their boards.
+     *
+     * @param solver The solver
+     */
+    private static void checkOptimal(Solver solver)
+    {
+        for (Board board : boards)
+        {
+            List<Move> moves = solver.solve(board);
+            assertEquals(space.distance(board), moves.size());
+            Board copy = new Board(3, 3, tiles(board));
+            for (Move move : moves)
+            {
+                copy.queryTile(move.getX1(), move.getY1());
+            }
+            assertTrue(copy.checkSolved());
+        }
+    }
+
+    /**
+     * Copies a board's tiles.
+     *
+     * @param board The board
+     * @return The tiles, left to right and top to bottom
+     */
+    private static int[] tiles(Board board)
+    {
+        int[] rtnval = new int[9];
+        for (int k = 0; k < rtnval.length; ++k)
+        {
+            rtnval[k] = board.getTile(k % 3, k / 3);
+        }
+        return rtnval;
+    }
+}